@@ -0,0 +1,13 @@
+package com.sky.constant;
+
+/**
+ * 缓存名称常量
+ */
+public class CacheConstant {
+
+    //C端菜品列表，key为分类id
+    public static final String DISH_CACHE = "dishCache";
+
+    //C端套餐列表，key为分类id
+    public static final String SETMEAL_CACHE = "setmealCache";
+}
@@ -24,4 +24,14 @@ public class MessageConstant {
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
     public static final String ALREADY_EXISTS = "已经存在";
+    public static final String SHOP_ADDRESS_RESOLVE_FAILED = "店铺地址解析失败";
+    public static final String ADDRESS_RESOLVE_FAILED = "收货地址解析失败";
+    public static final String DELIVERY_ROUTE_FAILED = "配送路线规划失败";
+    public static final String OUT_OF_DELIVERY_RANGE = "超出配送范围";
+    public static final String PAGE_CURSOR_INVALID = "分页游标无效";
+    public static final String REPORT_DATE_RANGE_INVALID = "报表日期范围无效";
+    public static final String REPORT_EXPORT_FAILED = "报表导出失败";
+    public static final String REPORT_EXPORT_BUSY = "导出任务过多，请稍后再试";
+    public static final String REPORT_EXPORT_JOB_NOT_FOUND = "导出任务不存在或已过期";
+    public static final String REPORT_EXPORT_NOT_READY = "导出文件尚未生成";
 }
@@ -0,0 +1,126 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache")
+@Data
+public class CacheProperties {
+
+    /**
+     * 各缓存的默认策略
+     */
+    private Spec defaults = Spec.defaults();
+
+    /**
+     * 按缓存名称配置的策略，未配置的项（null）使用默认策略
+     */
+    private Map<String, Spec> specs = new HashMap<>();
+
+    /**
+     * 条目存在时间超过redis过期时间的该比例后，在后台提前刷新，0表示不刷新
+     */
+    private double refreshAheadRatio = 0.8;
+
+    /**
+     * 后台刷新的线程数
+     */
+    private int refreshThreads = 2;
+
+    /**
+     * 是否用redis锁保证多个节点同时未命中时只有一个节点查询数据库
+     * 未获得锁的节点最多等待loadLockWait，之后自行查询
+     */
+    private boolean loadLock = true;
+    private Duration loadLockTtl = Duration.ofSeconds(3);
+    private Duration loadLockWait = Duration.ofMillis(500);
+
+    /**
+     * 菜单快照在本节点的最长缓存时间，分类变化不会触发缓存失效，最多延迟这么久反映到快照中
+     */
+    private Duration menuSnapshotTtl = Duration.ofMinutes(1);
+
+    /**
+     * 菜单缓存预热配置
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * 获取缓存的策略，未配置的项使用默认策略
+     * @param name 缓存名称
+     * @return
+     */
+    public Spec getSpec(String name) {
+        Spec spec = specs.get(name);
+        if (spec == null) {
+            return defaults;
+        }
+        Spec merged = new Spec();
+        merged.setLocalMaxSize(spec.getLocalMaxSize() != null ? spec.getLocalMaxSize() : defaults.getLocalMaxSize());
+        merged.setLocalTtl(spec.getLocalTtl() != null ? spec.getLocalTtl() : defaults.getLocalTtl());
+        merged.setRedisTtl(spec.getRedisTtl() != null ? spec.getRedisTtl() : defaults.getRedisTtl());
+        merged.setTtlJitter(spec.getTtlJitter() != null ? spec.getTtlJitter() : defaults.getTtlJitter());
+        merged.setEmptyTtl(spec.getEmptyTtl() != null ? spec.getEmptyTtl() : defaults.getEmptyTtl());
+        return merged;
+    }
+
+    @Data
+    public static class Warmup {
+
+        /**
+         * 预热的并发线程数
+         */
+        private int threads = 4;
+
+        /**
+         * 启动预热的最长等待时间，预热完成或超过该时间后就绪检查才报告健康
+         */
+        private Duration deadline = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Spec {
+
+        /**
+         * 本地缓存（一级缓存）的最大条目数
+         */
+        private Long localMaxSize;
+
+        /**
+         * 本地缓存过期时间，失效通知丢失时本地缓存最多保留旧数据这么久
+         */
+        private Duration localTtl;
+
+        /**
+         * redis缓存（二级缓存）过期时间，清空缓存后旧版本的数据在过期后删除
+         */
+        private Duration redisTtl;
+
+        /**
+         * redis过期时间的随机延长比例，避免同时写入的条目同时过期
+         */
+        private Double ttlJitter;
+
+        /**
+         * 空结果（null、空集合）的过期时间，空结果也缓存，避免反复查询数据库
+         */
+        private Duration emptyTtl;
+
+        public static Spec defaults() {
+            Spec spec = new Spec();
+            spec.setLocalMaxSize(1000L);
+            spec.setLocalTtl(Duration.ofMinutes(5));
+            spec.setRedisTtl(Duration.ofHours(1));
+            spec.setTtlJitter(0.1);
+            spec.setEmptyTtl(Duration.ofMinutes(1));
+            return spec;
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cluster")
+@Data
+public class ClusterProperties {
+
+    /**
+     * 节点id，不配置时按主机名和随机数生成，每次启动都不同；配置了sky.order.worker-id时必须配置
+     */
+    private String nodeId;
+
+    /**
+     * 节点超过该时间未发送心跳时视为下线，不再参与分片
+     */
+    private Duration nodeTtl = Duration.ofSeconds(30);
+
+    /**
+     * 订单号机器id的租约时间，随心跳续期；节点停止后不主动释放，租约过期后才能被其他节点使用，
+     * 避免节点间时钟偏差导致新节点与刚停止的节点生成相同的订单号
+     */
+    private Duration workerLeaseTtl = Duration.ofMinutes(10);
+
+}
@@ -0,0 +1,30 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "sky.delivery")
+@Data
+public class DeliveryProperties {
+
+    /**
+     * 最大配送距离（米）
+     */
+    private int maxDistance = 5000;
+
+    /**
+     * 绕行系数：球面距离乘以该系数仍不超过最大配送距离时，无需路线规划即可判定在配送范围内
+     */
+    private double detourFactor = 1.4;
+
+    /**
+     * 配送区域多边形顶点，每项格式为 "纬度,经度"，不配置则不限制区域
+     */
+    private List<String> zone = new ArrayList<>();
+
+}
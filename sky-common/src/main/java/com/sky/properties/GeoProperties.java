@@ -0,0 +1,37 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.geo")
+@Data
+public class GeoProperties {
+
+    /**
+     * 地理服务提供方：baidu 调用百度地图接口，stub 为本地离线模拟（用于压测）
+     */
+    private String provider = "baidu";
+
+    /**
+     * 本地缓存（一级缓存）配置
+     */
+    private long localMaxSize = 10000;
+    private Duration localTtl = Duration.ofMinutes(30);
+
+    /**
+     * redis缓存（二级缓存）过期时间
+     */
+    private Duration redisTtl = Duration.ofDays(7);
+
+    /**
+     * 离线模拟配置：模拟的接口耗时，以及生成坐标的中心点
+     */
+    private long stubLatencyMs = 0;
+    private double stubCenterLat = 39.915;
+    private double stubCenterLng = 116.404;
+
+}
@@ -0,0 +1,30 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order")
+@Data
+public class OrderProperties {
+
+    /**
+     * 订单号生成器的机器id（0-1023），不配置时启动时通过redis租用一个未被占用的机器id；
+     * 配置时需要同时配置固定的sky.cluster.node-id，同样在redis中登记，已被仍有心跳的其他节点占用则启动失败
+     */
+    private Long workerId;
+
+    /**
+     * 订单超时未支付自动取消的时间
+     */
+    private Duration paymentTimeout = Duration.ofMinutes(15);
+
+    /**
+     * 超时订单每批取消的数量
+     */
+    private int timeoutBatchSize = 500;
+
+}
@@ -0,0 +1,77 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.report")
+@Data
+public class ReportProperties {
+
+    /**
+     * 每日营业数据汇总表定时核对的天数（从昨天往前），用于修正跨天完成/取消的订单和增量更新的误差
+     */
+    private int reconcileDays = 7;
+
+    /**
+     * 定时任务补齐汇总表缺失数据的天数（从昨天往前），报表查询不写汇总表，超出该范围的缺失日期每次查询都按原始数据统计
+     */
+    private int backfillDays = 366;
+
+    /**
+     * 异步导出任务配置
+     */
+    private Export export = new Export();
+
+    /**
+     * 销量排名统计配置
+     */
+    private TopSales topSales = new TopSales();
+
+    @Data
+    public static class Export {
+
+        /**
+         * 同时执行的导出任务数，避免月底集中导出占满数据库连接和CPU
+         */
+        private int concurrency = 2;
+
+        /**
+         * 等待执行的导出任务数，超出时拒绝新的导出任务
+         */
+        private int queueCapacity = 10;
+
+        /**
+         * 导出文件的存放目录，为空时使用系统临时目录下的sky-report
+         */
+        private String spoolDir;
+
+        /**
+         * 导出任务结束后文件及任务信息的保留时间
+         */
+        private Duration ttl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class TopSales {
+
+        /**
+         * 统计方式：sketch 内存热点统计（范围不在统计内时回退到sql） / sql 直接查询 / verify 两种都计算并比对，返回sql结果
+         */
+        private String mode = "sketch";
+
+        /**
+         * 每天保留的计数器个数，菜品和套餐种类不超过该值时统计结果是精确的
+         */
+        private int capacity = 256;
+
+        /**
+         * 内存统计保留的天数，更早的日期查询数据库
+         */
+        private int retentionDays = 90;
+    }
+
+}
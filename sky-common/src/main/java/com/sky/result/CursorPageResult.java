@@ -0,0 +1,27 @@
+package com.sky.result;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 封装游标分页查询结果
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class CursorPageResult extends PageResult {
+
+    //未统计总记录数时total的取值
+    public static final long TOTAL_UNKNOWN = -1;
+
+    private String nextCursor; //下一页游标，为null表示没有更多数据
+
+    public CursorPageResult(long total, List records, String nextCursor) {
+        super(total, records);
+        this.nextCursor = nextCursor;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单号生成器（Snowflake算法）
+ * 订单号 = 41位时间戳(毫秒) + 10位机器id + 12位序列号，单节点每毫秒可生成4096个不重复的订单号
+ * 时间戳与序列号合并保存在一个AtomicLong中，通过CAS无锁更新：
+ * 同一毫秒内序列号递增，序列号用尽时进位到下一毫秒；
+ * 发生时钟回拨时继续沿用上次的时间戳递增，不会生成重复订单号，待系统时钟追上后恢复正常
+ * 机器id由调用方保证各节点唯一（如通过redis租用），租约丢失后可切换为新租到的机器id
+ */
+public class OrderNumberGenerator {
+
+    //起始时间 2024-01-01 00:00:00 UTC
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+    private volatile long workerId;
+
+    //高位为相对起始时间的毫秒数，低12位为序列号
+    private final AtomicLong state = new AtomicLong();
+
+    public OrderNumberGenerator(long workerId) {
+        setWorkerId(workerId);
+    }
+
+    /**
+     * 切换机器id
+     * @param workerId
+     */
+    public void setWorkerId(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId必须在0到" + MAX_WORKER_ID + "之间：" + workerId);
+        }
+        this.workerId = workerId;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 生成订单id
+     * @return
+     */
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long next;
+            if (now > (last >>> SEQUENCE_BITS)) {
+                //进入新的毫秒，序列号从0开始
+                next = now << SEQUENCE_BITS;
+            } else {
+                //同一毫秒或时钟回拨：序列号加1，溢出时自动进位到时间戳
+                next = last + 1;
+            }
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS))
+                        | (workerId << SEQUENCE_BITS)
+                        | sequence;
+            }
+        }
+    }
+
+    /**
+     * 生成订单号
+     * @return
+     */
+    public String nextNumber() {
+        return String.valueOf(nextId());
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 按天统计的商品销量
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GoodsDailySalesDTO implements Serializable {
+    //日期
+    private LocalDate statDate;
+
+    //商品名称
+    private String name;
+
+    //销量
+    private Integer number;
+}
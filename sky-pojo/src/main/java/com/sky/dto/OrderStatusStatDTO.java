@@ -0,0 +1,35 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 时间段内按状态统计的订单数据
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderStatusStatDTO implements Serializable {
+    //订单总数
+    private Integer orderCount;
+
+    //待接单数量
+    private Integer toBeConfirmedCount;
+
+    //待派送（已接单）数量
+    private Integer confirmedCount;
+
+    //已完成数量
+    private Integer completedCount;
+
+    //已取消数量
+    private Integer cancelledCount;
+
+    //营业额（已完成订单金额）
+    private Double turnover;
+}
@@ -27,4 +27,10 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //游标分页：上一页返回的nextCursor，传空字符串表示查询第一页；不传则使用页码分页
+    private String cursor;
+
+    //游标分页时是否统计总记录数
+    private Boolean withTotal;
+
 }
@@ -58,4 +58,13 @@ public class AddressBook implements Serializable {
 
     //是否默认 0否 1是
     private Integer isDefault;
+
+    //纬度（保存或修改地址后异步解析）
+    private Double latitude;
+
+    //经度
+    private Double longitude;
+
+    //GeoHash编码
+    private String geohash;
 }
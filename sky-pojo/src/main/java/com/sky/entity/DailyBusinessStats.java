@@ -0,0 +1,62 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日营业数据汇总
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBusinessStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //日期
+    private LocalDate statDate;
+
+    //营业额（已完成订单金额）
+    private BigDecimal turnover;
+
+    //有效订单数（已完成）
+    private Integer validOrderCount;
+
+    //订单总数
+    private Integer totalOrderCount;
+
+    //取消订单数
+    private Integer cancelledOrderCount;
+
+    //新增用户数
+    private Integer newUsers;
+
+    //是否已按原始数据核对 0否 1是，只有已核对的记录才能直接用于报表
+    private Integer reconciled;
+
+    private LocalDateTime updateTime;
+
+    /**
+     * 没有任何数据的一天
+     * @param statDate
+     * @return
+     */
+    public static DailyBusinessStats empty(LocalDate statDate) {
+        return DailyBusinessStats.builder()
+                .statDate(statDate)
+                .turnover(BigDecimal.ZERO)
+                .validOrderCount(0)
+                .totalOrderCount(0)
+                .cancelledOrderCount(0)
+                .newUsers(0)
+                .build();
+    }
+}
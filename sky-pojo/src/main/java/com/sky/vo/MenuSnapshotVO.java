@@ -0,0 +1,49 @@
+package com.sky.vo;
+
+import com.sky.entity.Category;
+import com.sky.entity.Setmeal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * C端整个菜单的快照
+ * 全量时包含所有起售中的分类、菜品（含口味）、套餐；增量时只包含指定版本之后变化的数据及删除（停售）的id
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSnapshotVO implements Serializable {
+
+    //菜单纪元，redis数据丢失后版本号重新开始时变化，增量查询时需要一并传入
+    private String epoch;
+
+    //菜单版本，菜单内容变化时递增
+    private Long version;
+
+    //是否为全量数据
+    private Boolean full;
+
+    //分类
+    private List<Category> categories;
+
+    //菜品
+    private List<DishVO> dishes;
+
+    //套餐
+    private List<Setmeal> setmeals;
+
+    //增量时，删除（停售）的分类id
+    private List<Long> removedCategoryIds;
+
+    //增量时，删除（停售）的菜品id
+    private List<Long> removedDishIds;
+
+    //增量时，删除（停售）的套餐id
+    private List<Long> removedSetmealIds;
+}
@@ -0,0 +1,55 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 报表异步导出任务
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportExportJobVO implements Serializable {
+
+    /**
+     * 任务状态 1排队中 2生成中 3已完成 4失败
+     */
+    public static final Integer WAITING = 1;
+    public static final Integer RUNNING = 2;
+    public static final Integer SUCCESS = 3;
+    public static final Integer FAILED = 4;
+
+    //任务id
+    private String id;
+
+    //任务状态
+    private Integer status;
+
+    //进度（0-100）
+    private Integer progress;
+
+    //导出的开始日期，为空表示默认范围
+    private LocalDate begin;
+
+    //导出的结束日期，为空表示默认范围
+    private LocalDate end;
+
+    //文件大小（字节）
+    private Long fileSize;
+
+    //失败原因
+    private String message;
+
+    //创建时间
+    private LocalDateTime createTime;
+
+    //结束时间
+    private LocalDateTime finishTime;
+}
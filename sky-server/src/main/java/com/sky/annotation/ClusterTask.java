@@ -0,0 +1,23 @@
+package com.sky.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 自定义注解，标识多节点部署时需要协调的定时任务
+ * 默认只由持有租约的节点（leader）执行；sharded为true时每个节点都执行，由任务按ClusterNode.getShard()只处理自己的分片
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ClusterTask {
+    //任务名称，同时作为租约key和监控指标的tag
+    String value();
+
+    //是否按节点分片执行
+    boolean sharded() default false;
+
+    //leader租约时间（秒），应大于任务的执行间隔，leader宕机后最多经过该时间由其他节点接替
+    long leaseSeconds() default 600;
+}
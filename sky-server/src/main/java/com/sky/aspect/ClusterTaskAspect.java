@@ -0,0 +1,56 @@
+package com.sky.aspect;
+
+import com.sky.annotation.ClusterTask;
+import com.sky.cluster.ClusterNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自定义切面，协调多节点部署时的定时任务
+ * leader任务只在持有租约的节点执行，分片任务在每个节点执行；按任务统计执行、跳过、失败次数
+ */
+@Aspect
+@Component
+@Slf4j
+public class ClusterTaskAspect {
+
+    @Autowired
+    private ClusterNode clusterNode;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Around("@annotation(clusterTask)")
+    public Object coordinate(ProceedingJoinPoint joinPoint, ClusterTask clusterTask) throws Throwable {
+        String name = clusterTask.value();
+        if (!clusterTask.sharded()
+                && !clusterNode.tryAcquireLease(name, TimeUnit.SECONDS.toMillis(clusterTask.leaseSeconds()))) {
+            log.debug("其他节点持有任务租约，跳过：{}", name);
+            count(name, "skip");
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            count(name, "run");
+            return result;
+        } catch (Throwable e) {
+            count(name, "error");
+            throw e;
+        } finally {
+            meterRegistry.timer("cluster.task.duration", "task", name)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void count(String name, String result) {
+        meterRegistry.counter("cluster.task", "task", name, "result", result).increment();
+    }
+}
@@ -0,0 +1,27 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 缓存条目：缓存的值及其加载时间，用于判断是否需要提前刷新
+ * empty为true表示空结果（null、空集合）的标记，这类条目使用较短的过期时间，不提前刷新
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedValue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object value;
+
+    //加载时间（毫秒时间戳）
+    private long loadedAt;
+
+    //是否为空结果
+    private boolean empty;
+}
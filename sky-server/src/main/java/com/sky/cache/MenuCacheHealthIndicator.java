@@ -0,0 +1,21 @@
+package com.sky.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 菜单缓存预热状态，加入readiness分组，预热完成（或超时）前不接收流量
+ */
+@Component
+public class MenuCacheHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private MenuCacheWarmer menuCacheWarmer;
+
+    @Override
+    public Health health() {
+        return menuCacheWarmer.isReady() ? Health.up().build() : Health.outOfService().withDetail("warmup", "running").build();
+    }
+}
@@ -0,0 +1,175 @@
+package com.sky.cache;
+
+import com.sky.constant.CacheConstant;
+import com.sky.entity.Category;
+import com.sky.event.CacheInvalidatedEvent;
+import com.sky.mapper.CategoryMapper;
+import com.sky.properties.CacheProperties;
+import com.sky.service.MenuService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 菜单缓存预热
+ * 启动完成后、本节点清理菜品/套餐缓存后，按起售中的分类并发预先加载C端菜品列表和套餐列表缓存，
+ * 用户请求不必等待冷加载；已在缓存中的条目直接命中，不重复查询数据库
+ * 预热期间触发的多次预热合并为一次
+ */
+@Component
+@Slf4j
+public class MenuCacheWarmer {
+
+    //分类类型：1菜品分类 2套餐分类
+    private static final Integer DISH_CATEGORY = 1;
+    private static final Integer SETMEAL_CATEGORY = 2;
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private MenuService menuService;
+    @Autowired
+    private CacheProperties cacheProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //执行预热的线程，以及并发加载各分类的线程池
+    private ExecutorService trigger;
+    private ExecutorService loader;
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private volatile boolean warmedUp;
+    private volatile long readyDeadline;
+
+    private Timer warmupTimer;
+    private Counter dishEntries;
+    private Counter setmealEntries;
+
+    @PostConstruct
+    public void init() {
+        trigger = Executors.newSingleThreadExecutor(runnable -> newThread(runnable, "menu-warmup"));
+        AtomicInteger threadCount = new AtomicInteger();
+        loader = Executors.newFixedThreadPool(cacheProperties.getWarmup().getThreads(),
+                runnable -> newThread(runnable, "menu-warmup-" + threadCount.incrementAndGet()));
+        warmupTimer = meterRegistry.timer("menu.cache.warmup");
+        dishEntries = meterRegistry.counter("menu.cache.warmup.entries", "cache", CacheConstant.DISH_CACHE);
+        setmealEntries = meterRegistry.counter("menu.cache.warmup.entries", "cache", CacheConstant.SETMEAL_CACHE);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        trigger.shutdownNow();
+        loader.shutdownNow();
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 启动完成后预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        readyDeadline = System.currentTimeMillis() + cacheProperties.getWarmup().getDeadline().toMillis();
+        requestWarmUp();
+    }
+
+    /**
+     * 菜品、套餐缓存被清理后重新预热
+     * @param event
+     */
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        //其他节点清理的缓存由该节点预热
+        if (event.isRemote()) {
+            return;
+        }
+        if (CacheConstant.DISH_CACHE.equals(event.getCacheName()) || CacheConstant.SETMEAL_CACHE.equals(event.getCacheName())) {
+            requestWarmUp();
+        }
+    }
+
+    /**
+     * 预热完成，或启动后已超过最长等待时间
+     * @return
+     */
+    public boolean isReady() {
+        return warmedUp || readyDeadline > 0 && System.currentTimeMillis() > readyDeadline;
+    }
+
+    private void requestWarmUp() {
+        if (pending.compareAndSet(false, true)) {
+            trigger.execute(() -> {
+                pending.set(false);
+                warmUp();
+            });
+        }
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        int dishCount = 0;
+        int setmealCount = 0;
+        try {
+            List<Future<?>> dishFutures = new ArrayList<>();
+            List<Future<?>> setmealFutures = new ArrayList<>();
+            for (Category category : categoryMapper.list(null)) {
+                if (DISH_CATEGORY.equals(category.getType())) {
+                    dishFutures.add(loader.submit(() -> menuService.listDishes(category.getId())));
+                } else if (SETMEAL_CATEGORY.equals(category.getType())) {
+                    setmealFutures.add(loader.submit(() -> menuService.listSetmeals(category.getId())));
+                }
+            }
+            dishCount = await(dishFutures);
+            setmealCount = await(setmealFutures);
+        } catch (Exception e) {
+            log.warn("菜单缓存预热失败：{}", e.getMessage());
+        } finally {
+            long nanos = System.nanoTime() - start;
+            warmupTimer.record(nanos, TimeUnit.NANOSECONDS);
+            dishEntries.increment(dishCount);
+            setmealEntries.increment(setmealCount);
+            warmedUp = true;
+            log.info("菜单缓存预热完成：菜品分类{}个，套餐分类{}个，耗时{}ms", dishCount, setmealCount,
+                    TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    /**
+     * 等待各分类加载完成
+     * @param futures
+     * @return 加载成功的分类数
+     */
+    private int await(List<Future<?>> futures) throws InterruptedException {
+        int count = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+                count++;
+            } catch (ExecutionException e) {
+                log.warn("菜单缓存预热失败：{}", e.getCause().getMessage());
+            }
+        }
+        return count;
+    }
+}
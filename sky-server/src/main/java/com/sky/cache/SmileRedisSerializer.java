@@ -0,0 +1,83 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * redis值序列化器：Jackson Smile（二进制JSON），体积和编解码开销都小于JDK序列化
+ * 写入时带上类型信息，读取时只允许反序列化为白名单中的类型（本项目的类、常用的JDK类型）；
+ * 以JDK序列化魔数（0xACED）开头的旧数据仍按JDK序列化读取，旧数据过期或被覆盖后自然迁移
+ */
+public class SmileRedisSerializer implements RedisSerializer<Object> {
+
+    //缓存空值（NullValue）的标记，Smile数据总以':)'开头，不会与之冲突
+    private static final byte[] NULL_VALUE = new byte[]{0};
+
+    private final ObjectMapper objectMapper;
+    private final JdkSerializationRedisSerializer jdkSerializer;
+
+    public SmileRedisSerializer(ClassLoader classLoader) {
+        PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.sky.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.lang.")
+                .allowIfSubType("java.math.")
+                .allowIfSubType("java.time.")
+                .allowIfSubTypeIsArray()
+                .build();
+        //类型信息中的类名大量重复，开启字符串值共享后只写一次
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        objectMapper = new ObjectMapper(smileFactory)
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+                .activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.EVERYTHING, JsonTypeInfo.As.PROPERTY);
+        jdkSerializer = new JdkSerializationRedisSerializer(classLoader);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (value instanceof NullValue) {
+            return NULL_VALUE;
+        }
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new SerializationException("Smile序列化失败：" + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length == 1 && bytes[0] == NULL_VALUE[0]) {
+            return NullValue.INSTANCE;
+        }
+        if (bytes.length > 1 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        try {
+            return objectMapper.readValue(bytes, Object.class);
+        } catch (Exception e) {
+            throw new SerializationException("Smile反序列化失败", e);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.sky.cache;
+
+import com.sky.properties.CacheProperties;
+import com.sky.result.Result;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 两级缓存：一级为本地Caffeine缓存，二级为redis缓存（多节点共享）
+ * 本地缓存的key统一转换为字符串，与redis key的转换方式一致；
+ * 删除、清空时同时处理两级缓存，并通知其他节点删除各自的本地缓存
+ * 通过get(key, valueLoader)加载时：
+ * 1.同一节点同一key只有一个线程查询数据库，其他线程等待同一结果；
+ * 2.可选用redis短锁保证多个节点中只有一个节点查询数据库，其他节点等待其写入redis；
+ * 3.条目接近过期时在后台提前刷新，请求不需要等待加载
+ * 加载、刷新前记录redis代数和本地删除代数，期间缓存被删除或清空时不写入查询结果，避免旧数据写入新版本
+ * 空结果（null、空集合）同样缓存，但使用较短的过期时间（负缓存），避免反复查询数据库
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    //等待其他节点加载时检查redis的间隔
+    private static final long LOCK_POLL_MILLIS = 20;
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, CachedValue> localCache;
+    private final VersionedRedisCache remoteCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheProperties cacheProperties;
+    private final CacheProperties.Spec spec;
+    private final Executor refreshExecutor;
+
+    //正在进行的加载，key为本地缓存的key
+    private final ConcurrentMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    //正在后台刷新的key
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    //本地缓存的删除代数，本地删除、清空时加1
+    private final AtomicLong localGeneration = new AtomicLong();
+
+    private final Counter localHit;
+    private final Counter localMiss;
+    private final Counter remoteHit;
+    private final Counter remoteMiss;
+    private final Counter loads;
+    private final Counter refreshes;
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, CachedValue> localCache,
+                         VersionedRedisCache remoteCache, TwoLevelCacheManager cacheManager,
+                         CacheProperties cacheProperties, CacheProperties.Spec spec, Executor refreshExecutor,
+                         MeterRegistry meterRegistry) {
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.cacheManager = cacheManager;
+        this.cacheProperties = cacheProperties;
+        this.spec = spec;
+        this.refreshExecutor = refreshExecutor;
+        this.localHit = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l1", "result", "hit");
+        this.localMiss = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l1", "result", "miss");
+        this.remoteHit = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l2", "result", "hit");
+        this.remoteMiss = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l2", "result", "miss");
+        this.loads = meterRegistry.counter("cache.loads", "cache", name, "type", "load");
+        this.refreshes = meterRegistry.counter("cache.loads", "cache", name, "type", "refresh");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        CachedValue entry = lookupEntry(key);
+        return entry == null ? null : toStoreValue(entry.getValue());
+    }
+
+    private CachedValue lookupEntry(Object key) {
+        String localKey = String.valueOf(key);
+        CachedValue entry = localCache.getIfPresent(localKey);
+        if (entry != null) {
+            localHit.increment();
+            return entry;
+        }
+        localMiss.increment();
+
+        entry = lookupRemote(key);
+        if (entry == null) {
+            remoteMiss.increment();
+            return null;
+        }
+        remoteHit.increment();
+        localCache.put(localKey, entry);
+        return entry;
+    }
+
+    private CachedValue lookupRemote(Object key) {
+        ValueWrapper wrapper = remoteCache.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (value instanceof CachedValue) {
+            return (CachedValue) value;
+        }
+        //旧格式的数据没有加载时间，视为需要刷新
+        return new CachedValue(value, 0, isEmptyResult(value));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        CachedValue entry = lookupEntry(key);
+        if (entry != null) {
+            if (needsRefresh(entry)) {
+                refreshAsync(key, valueLoader);
+            }
+            return (T) entry.getValue();
+        }
+
+        String localKey = String.valueOf(key);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(localKey, future);
+        if (existing == null) {
+            try {
+                future.complete(load(key, valueLoader));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                loading.remove(localKey, future);
+            }
+        } else {
+            future = existing;
+        }
+
+        try {
+            return (T) future.get();
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /**
+     * 查询数据库并写入缓存
+     * 开启加载锁时，未获得锁说明其他节点正在加载，先等待其写入redis，超时后自行加载
+     */
+    private Object load(Object key, Callable<?> valueLoader) throws Exception {
+        String token = null;
+        if (cacheProperties.isLoadLock()) {
+            token = tryLock(key);
+            if (token == null) {
+                CachedValue entry = awaitRemote(key);
+                if (entry != null) {
+                    localCache.put(String.valueOf(key), entry);
+                    return entry.getValue();
+                }
+            }
+        }
+        try {
+            loads.increment();
+            String generation = generation(key);
+            long localGen = localGeneration.get();
+            Object value = valueLoader.call();
+            putLoaded(key, value, generation, localGen);
+            return value;
+        } finally {
+            unlock(key, token);
+        }
+    }
+
+    /**
+     * 条目已超过redis过期时间的一定比例时需要刷新，空结果到期后直接过期
+     */
+    private boolean needsRefresh(CachedValue entry) {
+        double ratio = cacheProperties.getRefreshAheadRatio();
+        if (ratio <= 0 || entry.isEmpty()) {
+            return false;
+        }
+        long age = System.currentTimeMillis() - entry.getLoadedAt();
+        return age > spec.getRedisTtl().toMillis() * ratio;
+    }
+
+    /**
+     * 在后台刷新条目，同一key已在加载或其他节点正在刷新时跳过
+     */
+    private void refreshAsync(Object key, Callable<?> valueLoader) {
+        String localKey = String.valueOf(key);
+        if (loading.containsKey(localKey) || !refreshing.add(localKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(key, valueLoader);
+                } catch (Throwable e) {
+                    log.warn("缓存刷新失败：{}::{}，{}", name, key, e.getMessage());
+                } finally {
+                    refreshing.remove(localKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(localKey);
+        }
+    }
+
+    private void refresh(Object key, Callable<?> valueLoader) throws Exception {
+        String token = null;
+        if (cacheProperties.isLoadLock()) {
+            token = tryLock(key);
+            if (token == null) {
+                return;
+            }
+        }
+        try {
+            //其他节点可能刚刷新过，直接使用redis中的数据
+            CachedValue entry = lookupRemote(key);
+            if (entry != null && !needsRefresh(entry)) {
+                localCache.put(String.valueOf(key), entry);
+                return;
+            }
+            refreshes.increment();
+            String generation = generation(key);
+            long localGen = localGeneration.get();
+            putLoaded(key, valueLoader.call(), generation, localGen);
+        } finally {
+            unlock(key, token);
+        }
+    }
+
+    /**
+     * 获取加载锁，redis不可用时按获得锁处理
+     * @return 锁的持有者标识，未获得锁时返回null
+     */
+    private String tryLock(Object key) {
+        String token = UUID.randomUUID().toString();
+        try {
+            return remoteCache.tryLock(key, token, cacheProperties.getLoadLockTtl()) ? token : null;
+        } catch (Exception e) {
+            log.warn("获取缓存加载锁失败：{}::{}，{}", name, key, e.getMessage());
+            return token;
+        }
+    }
+
+    private void unlock(Object key, String token) {
+        if (token == null) {
+            return;
+        }
+        try {
+            remoteCache.unlock(key, token);
+        } catch (Exception e) {
+            log.warn("释放缓存加载锁失败：{}::{}，{}", name, key, e.getMessage());
+        }
+    }
+
+    /**
+     * 等待其他节点加载完成并写入redis
+     */
+    private CachedValue awaitRemote(Object key) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + cacheProperties.getLoadLockWait().toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(LOCK_POLL_MILLIS);
+            CachedValue entry = lookupRemote(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取redis中key的代数，redis不可用时返回null，写入时不再比较
+     */
+    private String generation(Object key) {
+        try {
+            return remoteCache.generation(key);
+        } catch (Exception e) {
+            log.warn("读取缓存代数失败：{}::{}，{}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入查询结果，加载期间缓存被删除或清空时放弃写入
+     * @param generation 加载前的redis代数
+     * @param localGen 加载前的本地删除代数
+     */
+    private void putLoaded(Object key, Object value, String generation, long localGen) {
+        if (generation == null) {
+            put(key, value);
+            return;
+        }
+        CachedValue entry = newEntry(value);
+        if (!remoteCache.putIfGeneration(key, entry, ttlOf(entry), generation)) {
+            log.debug("加载期间缓存已失效，放弃写入：{}::{}", name, key);
+            return;
+        }
+        if (localGeneration.get() == localGen) {
+            localCache.put(String.valueOf(key), entry);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        CachedValue entry = newEntry(value);
+        remoteCache.put(key, entry, ttlOf(entry));
+        localCache.put(String.valueOf(key), entry);
+    }
+
+    private static CachedValue newEntry(Object value) {
+        return new CachedValue(value, System.currentTimeMillis(), isEmptyResult(value));
+    }
+
+    private Duration ttlOf(CachedValue entry) {
+        return entry.isEmpty() ? spec.getEmptyTtl() : withJitter(spec.getRedisTtl());
+    }
+
+    /**
+     * 空结果：null、空集合，或者data为空的统一返回结果
+     */
+    private static boolean isEmptyResult(Object value) {
+        if (value instanceof Result) {
+            value = ((Result<?>) value).getData();
+        }
+        return value == null
+                || value instanceof Collection && ((Collection<?>) value).isEmpty()
+                || value instanceof Map && ((Map<?, ?>) value).isEmpty();
+    }
+
+    private Duration withJitter(Duration ttl) {
+        double jitter = spec.getTtlJitter();
+        if (jitter <= 0) {
+            return ttl;
+        }
+        return ttl.plusMillis((long) (ttl.toMillis() * jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    @Override
+    public void evict(Object key) {
+        remoteCache.evict(key);
+        evictLocal(String.valueOf(key));
+        cacheManager.publishEvict(name, String.valueOf(key));
+    }
+
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        clearLocal();
+        cacheManager.publishClear(name);
+    }
+
+    /**
+     * 只删除本地缓存，收到其他节点的失效通知时调用
+     * @param key
+     */
+    void evictLocal(String key) {
+        localGeneration.incrementAndGet();
+        localCache.invalidate(key);
+    }
+
+    /**
+     * 只清空本地缓存，收到其他节点的失效通知时调用
+     */
+    void clearLocal() {
+        localGeneration.incrementAndGet();
+        localCache.invalidateAll();
+    }
+}
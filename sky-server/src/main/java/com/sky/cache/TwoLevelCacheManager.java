@@ -0,0 +1,174 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sky.cluster.ClusterNode;
+import com.sky.event.CacheInvalidatedEvent;
+import com.sky.properties.CacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 两级缓存管理器，二级缓存为带版本号命名空间的redis缓存
+ * 缓存删除、清空后通过redis发布/订阅通知其他节点，消息格式：节点id|缓存名称[|key]，不带key表示清空；
+ * 发出和收到通知时都在本节点发布CacheInvalidatedEvent
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener, DisposableBean {
+
+    public static final String INVALIDATION_CHANNEL = "cache:invalidation";
+
+    private static final String SEPARATOR = "|";
+
+    private final RedisTemplate redisTemplate;
+    //缓存名称 -> redis命名空间，未配置时使用缓存名称
+    private final Map<String, String> namespaces;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ClusterNode clusterNode;
+    private final CacheProperties cacheProperties;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    //后台刷新缓存的线程池，队列满时放弃本次刷新（条目过期前还会再次触发）
+    private final ThreadPoolExecutor refreshExecutor;
+
+    public TwoLevelCacheManager(RedisTemplate redisTemplate, Map<String, String> namespaces, StringRedisTemplate stringRedisTemplate,
+                                ClusterNode clusterNode, CacheProperties cacheProperties, MeterRegistry meterRegistry,
+                                ApplicationEventPublisher eventPublisher) {
+        this.redisTemplate = redisTemplate;
+        this.namespaces = namespaces;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.clusterNode = clusterNode;
+        this.cacheProperties = cacheProperties;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(cacheProperties.getRefreshThreads(), cacheProperties.getRefreshThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        CacheProperties.Spec spec = cacheProperties.getSpec(name);
+        com.github.benmanes.caffeine.cache.Cache<String, CachedValue> localCache = Caffeine.newBuilder()
+                .maximumSize(spec.getLocalMaxSize())
+                .expireAfter(new LocalExpiry(spec))
+                .build();
+        VersionedRedisCache remoteCache = new VersionedRedisCache(name, namespaces.getOrDefault(name, name),
+                redisTemplate, spec.getRedisTtl());
+        return new TwoLevelCache(name, localCache, remoteCache, this, cacheProperties, spec, refreshExecutor, meterRegistry);
+    }
+
+    void publishEvict(String name, String key) {
+        publish(clusterNode.getNodeId() + SEPARATOR + name + SEPARATOR + key);
+        eventPublisher.publishEvent(new CacheInvalidatedEvent(name, key, false));
+    }
+
+    void publishClear(String name) {
+        publish(clusterNode.getNodeId() + SEPARATOR + name);
+        eventPublisher.publishEvent(new CacheInvalidatedEvent(name, null, false));
+    }
+
+    /**
+     * 发送失败时其他节点的本地缓存在过期后失效
+     */
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("发送缓存失效通知失败：{}，{}", message, e.getMessage());
+        }
+    }
+
+    /**
+     * 收到失效通知，删除本地缓存，忽略本节点发出的通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\" + SEPARATOR, 3);
+        if (parts.length < 2 || parts[0].equals(clusterNode.getNodeId())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts.length == 2) {
+            cache.clearLocal();
+            eventPublisher.publishEvent(new CacheInvalidatedEvent(parts[1], null, true));
+        } else {
+            cache.evictLocal(parts[2]);
+            eventPublisher.publishEvent(new CacheInvalidatedEvent(parts[1], parts[2], true));
+        }
+    }
+
+    /**
+     * 本地缓存过期策略：写入后过期，空结果使用较短的过期时间
+     */
+    private static class LocalExpiry implements Expiry<String, CachedValue> {
+
+        private final long ttlNanos;
+        private final long emptyTtlNanos;
+
+        LocalExpiry(CacheProperties.Spec spec) {
+            this.ttlNanos = spec.getLocalTtl().toNanos();
+            this.emptyTtlNanos = Math.min(ttlNanos, spec.getEmptyTtl().toNanos());
+        }
+
+        @Override
+        public long expireAfterCreate(String key, CachedValue value, long currentTime) {
+            return value.isEmpty() ? emptyTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedValue value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedValue value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
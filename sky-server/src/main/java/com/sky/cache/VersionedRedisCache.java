@@ -0,0 +1,209 @@
+package com.sky.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 带版本号命名空间的redis缓存
+ * key格式：命名空间:v版本号:key，版本号保存在 命名空间:version 中；
+ * 清空缓存只需将版本号加1，旧版本的数据不再被读取，由过期时间自动清除，避免用KEYS扫描整个redis
+ * 读写时在lua脚本中读取当前版本号并拼接key，一次网络往返完成
+ * 删除单个key时同时将该key的删除代数（命名空间:gen:key）加1，
+ * 加载前读取“版本号:删除代数”，写入时不一致说明加载期间缓存已被删除或清空，放弃写入
+ */
+public class VersionedRedisCache extends AbstractValueAdaptingCache {
+
+    private static final String GET_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) or '0' " +
+            "return redis.call('GET', ARGV[1] .. ':v' .. v .. ':' .. ARGV[2])";
+
+    private static final String PUT_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) or '0' " +
+            "redis.call('SET', ARGV[1] .. ':v' .. v .. ':' .. ARGV[2], ARGV[3], 'PX', ARGV[4]) " +
+            "return 1";
+
+    private static final String EVICT_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) or '0' " +
+            "local g = ARGV[1] .. ':gen:' .. ARGV[2] " +
+            "redis.call('INCR', g) " +
+            "redis.call('PEXPIRE', g, ARGV[3]) " +
+            "return redis.call('DEL', ARGV[1] .. ':v' .. v .. ':' .. ARGV[2])";
+
+    private static final String GENERATION_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) or '0' " +
+            "local g = redis.call('GET', ARGV[1] .. ':gen:' .. ARGV[2]) or '0' " +
+            "return v .. ':' .. g";
+
+    private static final String PUT_IF_GENERATION_SCRIPT =
+            "local v = redis.call('GET', KEYS[1]) or '0' " +
+            "local g = redis.call('GET', ARGV[1] .. ':gen:' .. ARGV[2]) or '0' " +
+            "if v .. ':' .. g ~= ARGV[5] then return 0 end " +
+            "redis.call('SET', ARGV[1] .. ':v' .. v .. ':' .. ARGV[2], ARGV[3], 'PX', ARGV[4]) " +
+            "return 1";
+
+    //加载锁不带版本号，清空缓存不影响正在进行的加载
+    private static final String LOCK_SCRIPT =
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 end " +
+            "return 0";
+
+    private static final String UNLOCK_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0";
+
+    private static final DefaultRedisScript<byte[]> getScript = new DefaultRedisScript<>(GET_SCRIPT, byte[].class);
+    private static final DefaultRedisScript<Long> putScript = new DefaultRedisScript<>(PUT_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> evictScript = new DefaultRedisScript<>(EVICT_SCRIPT, Long.class);
+    private static final DefaultRedisScript<byte[]> generationScript = new DefaultRedisScript<>(GENERATION_SCRIPT, byte[].class);
+    private static final DefaultRedisScript<Long> putIfGenerationScript = new DefaultRedisScript<>(PUT_IF_GENERATION_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> lockScript = new DefaultRedisScript<>(LOCK_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> unlockScript = new DefaultRedisScript<>(UNLOCK_SCRIPT, Long.class);
+
+    private final String name;
+    private final String namespace;
+    private final List<String> versionKey;
+    private final RedisTemplate redisTemplate;
+    private final RedisSerializer valueSerializer;
+    private final Duration ttl;
+
+    public VersionedRedisCache(String name, String namespace, RedisTemplate redisTemplate, Duration ttl) {
+        super(true);
+        this.name = name;
+        this.namespace = namespace;
+        this.versionKey = Collections.singletonList(namespace + ":version");
+        this.redisTemplate = redisTemplate;
+        this.valueSerializer = redisTemplate.getValueSerializer();
+        this.ttl = ttl;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisTemplate;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        byte[] bytes = (byte[]) redisTemplate.execute(getScript, RedisSerializer.byteArray(), RedisSerializer.byteArray(),
+                versionKey, bytes(namespace), bytes(key));
+        return bytes == null ? null : valueSerializer.deserialize(bytes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, ttl);
+    }
+
+    /**
+     * 按指定的过期时间写入
+     * @param key
+     * @param value
+     * @param ttl
+     */
+    public void put(Object key, Object value, Duration ttl) {
+        redisTemplate.execute(putScript, RedisSerializer.byteArray(), null, versionKey,
+                bytes(namespace), bytes(key), valueSerializer.serialize(toStoreValue(value)), bytes(ttl.toMillis()));
+    }
+
+    /**
+     * 读取key当前的代数，加载前调用，写入时用putIfGeneration比较
+     * @param key
+     * @return 版本号:删除代数
+     */
+    public String generation(Object key) {
+        byte[] bytes = (byte[]) redisTemplate.execute(generationScript, RedisSerializer.byteArray(), RedisSerializer.byteArray(),
+                versionKey, bytes(namespace), bytes(key));
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 代数未变化时才写入，加载期间缓存被删除或清空时放弃写入，避免旧数据写入新版本
+     * @param key
+     * @param value
+     * @param ttl
+     * @param generation 加载前读取的代数
+     * @return 是否写入
+     */
+    public boolean putIfGeneration(Object key, Object value, Duration ttl, String generation) {
+        Long written = (Long) redisTemplate.execute(putIfGenerationScript, RedisSerializer.byteArray(), null, versionKey,
+                bytes(namespace), bytes(key), valueSerializer.serialize(toStoreValue(value)), bytes(ttl.toMillis()),
+                bytes(generation));
+        return written != null && written == 1;
+    }
+
+    /**
+     * 删除key，同时将该key的删除代数加1，代数与缓存的过期时间相同，足以覆盖正在进行的加载
+     */
+    @Override
+    public void evict(Object key) {
+        redisTemplate.execute(evictScript, RedisSerializer.byteArray(), null, versionKey,
+                bytes(namespace), bytes(key), bytes(ttl.toMillis()));
+    }
+
+    /**
+     * 清空缓存：版本号加1
+     */
+    @Override
+    public void clear() {
+        redisTemplate.opsForValue().increment(versionKey.get(0));
+    }
+
+    /**
+     * 获取加载锁，多个节点同时未命中时只由一个节点查询数据库
+     * @param key
+     * @param token 锁的持有者标识
+     * @param ttl 锁的过期时间
+     * @return 是否获得锁
+     */
+    public boolean tryLock(Object key, String token, Duration ttl) {
+        Long locked = (Long) redisTemplate.execute(lockScript, RedisSerializer.byteArray(), null,
+                Collections.singletonList(lockKey(key)), bytes(token), bytes(ttl.toMillis()));
+        return locked != null && locked == 1;
+    }
+
+    /**
+     * 释放本节点持有的加载锁
+     * @param key
+     * @param token
+     */
+    public void unlock(Object key, String token) {
+        redisTemplate.execute(unlockScript, RedisSerializer.byteArray(), null,
+                Collections.singletonList(lockKey(key)), bytes(token));
+    }
+
+    private String lockKey(Object key) {
+        return namespace + ":lock:" + key;
+    }
+
+    private static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,284 @@
+package com.sky.cluster;
+
+import com.sky.properties.ClusterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * 集群节点信息
+ * 每个节点定时把心跳写入redis有序集合（score为心跳时间），按节点id排序后的序号作为分片号；
+ * leader租约为redis中的key，值为持有者的节点id，持有者每次执行任务时续期，宕机后租约过期由其他节点获得
+ * redis不可用时按单节点处理：分片任务处理全部数据，leader任务照常执行（这些任务都可以重复执行）
+ * 订单号生成器的机器id同样以租约方式分配，随心跳续期，保证同一时刻每个机器id只被一个节点使用
+ */
+@Component
+@Slf4j
+public class ClusterNode {
+
+    private static final String NODES_KEY = "cluster:nodes";
+    private static final String LEASE_KEY_PREFIX = "cluster:lease:";
+    private static final String WORKER_KEY_PREFIX = "cluster:worker:";
+
+    //租约不存在或已由本节点持有时获得（续期）租约
+    private static final String ACQUIRE_SCRIPT =
+            "local owner = redis.call('GET', KEYS[1]) " +
+            "if owner == ARGV[1] then redis.call('PEXPIRE', KEYS[1], ARGV[2]) return 1 end " +
+            "if not owner then redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end " +
+            "return 0";
+
+    //租约仍由指定的持有者持有时转给本节点
+    private static final String TAKEOVER_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[2] then redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3]) return 1 end " +
+            "return 0";
+
+    //只释放本节点持有的租约
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ClusterProperties clusterProperties;
+
+    private final DefaultRedisScript<Long> acquireScript = new DefaultRedisScript<>(ACQUIRE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> takeoverScript = new DefaultRedisScript<>(TAKEOVER_SCRIPT, Long.class);
+
+    private String nodeId;
+
+    //本节点获得过的租约，停止时释放
+    private final Set<String> leases = ConcurrentHashMap.newKeySet();
+
+    //本节点租用的机器id，及其是否为配置指定
+    private volatile long workerId = -1;
+    private volatile long maxWorkerId;
+    private volatile boolean workerIdConfigured;
+    private volatile LongConsumer workerIdListener;
+
+    @PostConstruct
+    public void init() {
+        nodeId = clusterProperties.getNodeId();
+        if (nodeId == null || nodeId.isEmpty()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "unknown";
+            }
+            nodeId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        log.info("集群节点id：{}", nodeId);
+        heartbeat();
+    }
+
+    /**
+     * 停止时移除心跳并释放租约，其他节点可以立即接替
+     */
+    @PreDestroy
+    public void destroy() {
+        try {
+            stringRedisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+            for (String key : leases) {
+                stringRedisTemplate.execute(releaseScript, Collections.singletonList(key), nodeId);
+            }
+        } catch (Exception e) {
+            log.warn("注销集群节点失败：{}", e.getMessage());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 发送心跳，同时清理已下线的节点、续期机器id租约
+     */
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            stringRedisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+            stringRedisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - clusterProperties.getNodeTtl().toMillis());
+            renewWorkerId();
+        } catch (Exception e) {
+            log.warn("发送集群心跳失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 租用订单号生成器的机器id
+     * 未配置时从节点id散列到的位置开始依次尝试，直到租到一个未被占用的机器id；
+     * 配置时需要同时配置固定的节点id，重启后仍是同一个持有者，可以直接续用停止前的租约；
+     * 配置的机器id被仍有心跳的其他节点占用则启动失败，持有者已没有心跳时记录日志后接管；
+     * redis不可用时只有配置了机器id才能启动
+     * @param configured 配置的机器id，可以为空
+     * @param max 最大机器id
+     * @return
+     */
+    public long leaseWorkerId(Long configured, long max) {
+        maxWorkerId = max;
+        workerIdConfigured = configured != null;
+        if (configured != null && (clusterProperties.getNodeId() == null || clusterProperties.getNodeId().isEmpty())) {
+            throw new IllegalStateException("配置sky.order.worker-id时需要同时配置固定的sky.cluster.node-id，"
+                    + "否则重启后的节点无法续用停止前的机器id租约");
+        }
+        try {
+            if (configured != null) {
+                if (!acquireWorkerId(configured) && !takeOverWorkerId(configured)) {
+                    throw new IllegalStateException("机器id已被其他节点使用：" + configured);
+                }
+            } else if (!scanWorkerId()) {
+                throw new IllegalStateException("没有可用的机器id，节点数超过" + (max + 1));
+            }
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            if (configured == null) {
+                throw new IllegalStateException("无法通过redis租用机器id，请配置sky.order.worker-id", e);
+            }
+            log.warn("登记机器id失败，使用配置的机器id：{}，{}", configured, e.getMessage());
+            workerId = configured;
+        }
+        log.info("租用机器id：{}", workerId);
+        return workerId;
+    }
+
+    /**
+     * 机器id变化（租约丢失后重新租用）时的回调
+     * @param workerIdListener
+     */
+    public void setWorkerIdListener(LongConsumer workerIdListener) {
+        this.workerIdListener = workerIdListener;
+    }
+
+    private boolean scanWorkerId() {
+        long start = Math.floorMod(nodeId.hashCode(), maxWorkerId + 1);
+        for (long i = 0; i <= maxWorkerId; i++) {
+            if (acquireWorkerId((start + i) % (maxWorkerId + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean acquireWorkerId(long id) {
+        Long acquired = stringRedisTemplate.execute(acquireScript, Collections.singletonList(WORKER_KEY_PREFIX + id),
+                nodeId, String.valueOf(clusterProperties.getWorkerLeaseTtl().toMillis()));
+        if (acquired != null && acquired == 1) {
+            workerId = id;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 配置的机器id被其他节点占用时，持有者已没有心跳（已停止或节点id已变更）则接管租约
+     */
+    private boolean takeOverWorkerId(long id) {
+        String key = WORKER_KEY_PREFIX + id;
+        String owner = stringRedisTemplate.opsForValue().get(key);
+        if (owner == null) {
+            return acquireWorkerId(id);
+        }
+        Double lastHeartbeat = stringRedisTemplate.opsForZSet().score(NODES_KEY, owner);
+        if (lastHeartbeat != null
+                && lastHeartbeat >= System.currentTimeMillis() - clusterProperties.getNodeTtl().toMillis()) {
+            return false;
+        }
+        Long taken = stringRedisTemplate.execute(takeoverScript, Collections.singletonList(key),
+                nodeId, owner, String.valueOf(clusterProperties.getWorkerLeaseTtl().toMillis()));
+        if (taken == null || taken != 1) {
+            return false;
+        }
+        log.warn("配置的机器id仍登记在已没有心跳的节点{}名下，由本节点接管：{}", owner, id);
+        workerId = id;
+        return true;
+    }
+
+    /**
+     * 续期机器id租约；租约已被其他节点占用（redis长时间不可用导致过期）时，未配置机器id则重新租用
+     * 停止时不释放，见sky.cluster.worker-lease-ttl
+     */
+    private void renewWorkerId() {
+        long current = workerId;
+        if (current < 0 || acquireWorkerId(current)) {
+            return;
+        }
+        if (workerIdConfigured) {
+            log.error("配置的机器id已被其他节点使用，订单号可能重复：{}", current);
+            return;
+        }
+        if (!scanWorkerId()) {
+            log.error("机器id租约丢失且没有可用的机器id，订单号可能重复：{}", current);
+            return;
+        }
+        log.error("机器id租约丢失，切换机器id：{} -> {}", current, workerId);
+        LongConsumer listener = workerIdListener;
+        if (listener != null) {
+            listener.accept(workerId);
+        }
+    }
+
+    /**
+     * 获取当前节点负责的分片
+     * 节点上下线期间各节点看到的节点列表可能短暂不一致，部分数据会被重复处理或延后到下一次处理
+     * @return
+     */
+    public Shard getShard() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> nodes = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(NODES_KEY, now - clusterProperties.getNodeTtl().toMillis(), Double.MAX_VALUE);
+            if (nodes == null || nodes.isEmpty()) {
+                return Shard.single();
+            }
+            List<String> sorted = new ArrayList<>(nodes);
+            Collections.sort(sorted);
+            int index = sorted.indexOf(nodeId);
+            if (index < 0) {
+                //本节点心跳尚未写入或已过期
+                return Shard.single();
+            }
+            return new Shard(index, sorted.size());
+        } catch (Exception e) {
+            log.warn("获取集群节点失败，按单节点处理：{}", e.getMessage());
+            return Shard.single();
+        }
+    }
+
+    /**
+     * 获取或续期leader租约
+     * @param name 任务名称
+     * @param leaseMillis 租约时间
+     * @return 本节点是否持有租约
+     */
+    public boolean tryAcquireLease(String name, long leaseMillis) {
+        String key = LEASE_KEY_PREFIX + name;
+        try {
+            Long acquired = stringRedisTemplate.execute(acquireScript, Collections.singletonList(key),
+                    nodeId, String.valueOf(leaseMillis));
+            if (acquired != null && acquired == 1) {
+                leases.add(key);
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("获取任务租约失败，由本节点执行：{}，{}", name, e.getMessage());
+            return true;
+        }
+    }
+}
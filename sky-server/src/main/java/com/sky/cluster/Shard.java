@@ -0,0 +1,26 @@
+package com.sky.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 当前节点负责的分片：只处理 mod(id, total) = index 的数据
+ */
+@Data
+@AllArgsConstructor
+public class Shard {
+
+    //当前节点在存活节点中的序号
+    private int index;
+
+    //存活节点数
+    private int total;
+
+    /**
+     * 单节点（或无法获取集群信息）时处理全部数据
+     * @return
+     */
+    public static Shard single() {
+        return new Shard(0, 1);
+    }
+}
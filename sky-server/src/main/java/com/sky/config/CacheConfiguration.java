@@ -0,0 +1,47 @@
+package com.sky.config;
+
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.cluster.ClusterNode;
+import com.sky.constant.CacheConstant;
+import com.sky.properties.CacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 缓存配置：本地缓存 + redis缓存的两级缓存
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                                             ClusterNode clusterNode, CacheProperties cacheProperties, MeterRegistry meterRegistry,
+                                             ApplicationEventPublisher eventPublisher) {
+        log.info("开始创建两级缓存管理器");
+        //菜品缓存的key：dish:v版本号:分类id，其余缓存以缓存名称为命名空间
+        Map<String, String> namespaces = Collections.singletonMap(CacheConstant.DISH_CACHE, "dish");
+        return new TwoLevelCacheManager(redisTemplate, namespaces, stringRedisTemplate, clusterNode, cacheProperties,
+                meterRegistry, eventPublisher);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                          TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,25 @@
+package com.sky.config;
+
+import com.sky.cluster.ClusterNode;
+import com.sky.properties.OrderProperties;
+import com.sky.utils.OrderNumberGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class OrderNumberConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OrderNumberGenerator orderNumberGenerator(OrderProperties orderProperties, ClusterNode clusterNode){
+        long workerId = clusterNode.leaseWorkerId(orderProperties.getWorkerId(), OrderNumberGenerator.MAX_WORKER_ID);
+        log.info("开始创建订单号生成器，机器id：{}", workerId);
+        OrderNumberGenerator orderNumberGenerator = new OrderNumberGenerator(workerId);
+        //租约丢失后重新租到的机器id
+        clusterNode.setWorkerIdListener(orderNumberGenerator::setWorkerId);
+        return orderNumberGenerator;
+    }
+}
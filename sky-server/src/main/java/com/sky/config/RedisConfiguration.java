@@ -1,5 +1,6 @@
 package com.sky.config;
 
+import com.sky.cache.SmileRedisSerializer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -19,6 +20,10 @@ public class RedisConfiguration {
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //设置redis中key的序列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
+        //设置redis中value的序列化器（同时用于缓存管理器），兼容读取JDK序列化的旧数据
+        SmileRedisSerializer valueSerializer = new SmileRedisSerializer(getClass().getClassLoader());
+        redisTemplate.setValueSerializer(valueSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
         return redisTemplate;
     };
 }
@@ -1,5 +1,6 @@
 package com.sky.controller.admin;
 
+import com.sky.constant.CacheConstant;
 import com.sky.dto.DishDTO;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.result.PageResult;
@@ -10,11 +11,11 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 /**
  * 菜品管理
@@ -28,7 +29,7 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private CacheManager cacheManager;
 
     @PostMapping
     @ApiOperation("新增菜品")
@@ -37,8 +38,7 @@ public class DishController {
         dishService.saveWithFlavor(dishDTO);
 
         //清理缓存数据
-        String key="dish_"+dishDTO.getCategoryId();
-        cleanCache(key);
+        cleanCache(dishDTO.getCategoryId());
         return Result.success();
     }
 
@@ -62,7 +62,7 @@ public class DishController {
         dishService.deleteBatch(ids);
 
         //清除缓存(清除所有）
-        cleanCache("dish_*");
+        cleanCache(null);
 
         return Result.success();
     }
@@ -87,7 +87,7 @@ public class DishController {
         dishService.updateWithFlavor(dishDTO);
 
         //清除所有缓存（因为修改可能修改的是分类，所以会影响两个分类，情况较为复杂，所以直接缓存全删）
-        cleanCache("dish_*");
+        cleanCache(null);
 
         return Result.success();
     };
@@ -97,17 +97,21 @@ public class DishController {
     public Result<String> startOrStop(@PathVariable Integer status,Long id){
         dishService.startOrStop(status,id);
 
-        cleanCache("dish_*");
+        cleanCache(null);
 
         return Result.success();
     }
 
     /**
-     * 清理缓存
-     * @param pattern
+     * 清理缓存（包括各节点的本地缓存）
+     * @param categoryId 分类id，为null时清理所有分类
      */
-    private void cleanCache(String pattern){
-        Set keys = redisTemplate.keys(pattern);
-        redisTemplate.delete(keys);
+    private void cleanCache(Long categoryId){
+        Cache cache = cacheManager.getCache(CacheConstant.DISH_CACHE);
+        if (categoryId == null) {
+            cache.clear();
+        } else {
+            cache.evict(categoryId);
+        }
     }
 }
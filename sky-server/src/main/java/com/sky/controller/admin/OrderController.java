@@ -4,6 +4,7 @@ import com.sky.dto.OrdersCancelDTO;
 import com.sky.dto.OrdersConfirmDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.dto.OrdersRejectionDTO;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -28,6 +29,7 @@ public class OrderController {
 
     /**
      * 订单搜索
+     * 传入cursor参数时使用游标分页（cursor为空字符串表示第一页），否则使用页码分页
      *
      * @param ordersPageQueryDTO
      * @return
@@ -35,6 +37,10 @@ public class OrderController {
     @GetMapping("/conditionSearch")
     @ApiOperation("订单搜索")
     public Result<PageResult> conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO) {
+        if (ordersPageQueryDTO.getCursor() != null) {
+            CursorPageResult cursorPageResult = orderService.conditionSearchByCursor(ordersPageQueryDTO);
+            return Result.success(cursorPageResult);
+        }
         PageResult pageResult = orderService.conditionSearch(ordersPageQueryDTO);
         return Result.success(pageResult);
     }
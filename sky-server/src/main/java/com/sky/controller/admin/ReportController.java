@@ -1,8 +1,10 @@
 package com.sky.controller.admin;
 
 import com.sky.result.Result;
+import com.sky.service.ReportExportService;
 import com.sky.service.ReportService;
 import com.sky.vo.OrderReportVO;
+import com.sky.vo.ReportExportJobVO;
 import com.sky.vo.SalesTop10ReportVO;
 import com.sky.vo.TurnoverReportVO;
 import com.sky.vo.UserReportVO;
@@ -12,9 +14,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.time.LocalDate;
 
@@ -29,6 +34,8 @@ public class ReportController {
 
     @Autowired
     private ReportService reportService;
+    @Autowired
+    private ReportExportService reportExportService;
 
     /**
      * 营业额统计
@@ -74,11 +81,54 @@ public class ReportController {
 
     /**
      * 导出运营数据报表
+     * @param begin 开始日期，不传时默认最近30天
+     * @param end 结束日期，不传时默认昨天
      * @param response
      */
     @GetMapping("/export")
     @ApiOperation("导出运营数据报表")
-    public void export(HttpServletResponse response){
-        reportService.exportBusinessData(response);
+    public void export(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            HttpServletResponse response){
+        reportService.exportBusinessData(begin, end, response);
     };
+
+    /**
+     * 提交运营数据报表异步导出任务
+     * @param begin 开始日期，不传时默认最近30天
+     * @param end 结束日期，不传时默认昨天
+     * @return
+     */
+    @PostMapping("/export-jobs")
+    @ApiOperation("提交运营数据报表导出任务")
+    public Result<ReportExportJobVO> submitExportJob(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end){
+        log.info("提交运营数据报表导出任务：{}，{}",begin,end);
+        return Result.success(reportExportService.submit(begin,end));
+    }
+
+    /**
+     * 查询导出任务进度
+     * @param id
+     * @return
+     */
+    @GetMapping("/export-jobs/{id}")
+    @ApiOperation("查询导出任务进度")
+    public Result<ReportExportJobVO> getExportJob(@PathVariable String id){
+        return Result.success(reportExportService.getJob(id));
+    }
+
+    /**
+     * 下载导出文件
+     * @param id
+     * @param request
+     * @param response
+     */
+    @GetMapping("/export-jobs/{id}/file")
+    @ApiOperation("下载导出文件")
+    public void downloadExportFile(@PathVariable String id, HttpServletRequest request, HttpServletResponse response){
+        reportExportService.download(id, request, response);
+    }
 }
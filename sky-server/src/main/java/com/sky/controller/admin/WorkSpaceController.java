@@ -6,6 +6,7 @@ import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
 import com.sky.vo.OrderOverViewVO;
 import com.sky.vo.SetmealOverViewVO;
+import com.sky.vo.WorkspaceSnapshotVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -73,4 +74,14 @@ public class WorkSpaceController {
     public Result<SetmealOverViewVO> setmealOverView(){
         return Result.success(workspaceService.getSetmealOverView());
     }
+
+    /**
+     * 查询工作台全部数据，一次请求代替上面四个接口
+     * @return
+     */
+    @GetMapping("/snapshot")
+    @ApiOperation("查询工作台全部数据")
+    public Result<WorkspaceSnapshotVO> snapshot(){
+        return Result.success(workspaceService.getSnapshot());
+    }
 }
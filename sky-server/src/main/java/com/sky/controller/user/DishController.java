@@ -1,5 +1,6 @@
 package com.sky.controller.user;
 
+import com.sky.constant.CacheConstant;
 import com.sky.constant.StatusConstant;
 import com.sky.entity.Dish;
 import com.sky.result.Result;
@@ -9,8 +10,8 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,7 +26,7 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private CacheManager cacheManager;
 
     /**
      * 根据分类id查询菜品
@@ -36,24 +37,13 @@ public class DishController {
     @GetMapping("/list")
     @ApiOperation("根据分类id查询菜品")
     public Result<List<DishVO>> list(Long categoryId) {
-        //构造Redis中的Key
-        String key="dish_"+categoryId;
-
-        //查询redis中是否有该分类
-        ValueOperations valueOperations = redisTemplate.opsForValue();
-        List<DishVO> list = (List<DishVO>) valueOperations.get(key);
-        //1.如果有，直接返回
-        if(list!=null && list.size()>0){
-            return Result.success(list);
-        };
-
         Dish dish = new Dish();
         dish.setCategoryId(categoryId);
         dish.setStatus(StatusConstant.ENABLE);//查询起售中的菜品
 
-        //2.如果没有，先访问MySQL数据库，再存入Redis中，返回
-        list = dishService.listWithFlavor(dish);
-        valueOperations.set(key,list);
+        //查询缓存（本地缓存 -> redis），没有时访问MySQL数据库再存入缓存，同一分类同时只有一个请求访问数据库
+        Cache cache = cacheManager.getCache(CacheConstant.DISH_CACHE);
+        List<DishVO> list = cache.get(String.valueOf(categoryId), () -> dishService.listWithFlavor(dish));
 
         return Result.success(list);
     }
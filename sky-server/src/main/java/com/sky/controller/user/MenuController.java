@@ -0,0 +1,68 @@
+package com.sky.controller.user;
+
+import com.sky.result.Result;
+import com.sky.service.MenuService;
+import com.sky.vo.MenuSnapshotVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/user/menu")
+@Slf4j
+@Api(tags = "C端-菜单接口")
+public class MenuController {
+
+    @Autowired
+    private MenuService menuService;
+
+    /**
+     * 查询整个菜单（分类、菜品及口味、套餐），ETag为菜单纪元-版本，未变化时返回304
+     * @param epoch 客户端已有菜单的纪元
+     * @param since 客户端已有的菜单版本，与纪元一起传入时只返回之后变化的数据
+     * @param ifNoneMatch
+     * @return
+     */
+    @GetMapping("/snapshot")
+    @ApiOperation("查询菜单快照")
+    public ResponseEntity<Result<MenuSnapshotVO>> snapshot(String epoch, Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        MenuSnapshotVO menuSnapshotVO = menuService.getSnapshot(epoch, since);
+        String eTag = "\"" + menuSnapshotVO.getEpoch() + "-" + menuSnapshotVO.getVersion() + "\"";
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(Result.success(menuSnapshotVO));
+    }
+
+    /**
+     * 按RFC 7232的弱比较判断If-None-Match是否匹配：忽略W/前缀（nginx gzip会把强ETag改为弱ETag），
+     * 支持逗号分隔的多个值及*
+     * @param ifNoneMatch
+     * @param eTag
+     * @return
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
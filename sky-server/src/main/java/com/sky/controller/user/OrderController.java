@@ -2,6 +2,7 @@ package com.sky.controller.user;
 
 import com.sky.dto.OrdersPaymentDTO;
 import com.sky.dto.OrdersSubmitDTO;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.OrderService;
@@ -52,15 +53,24 @@ public class OrderController {
 
     /**
      * 历史订单查询
+     * 传入cursor参数时使用游标分页（cursor为空字符串表示第一页），否则使用页码分页
      *
-     * @param page
-     * @param pageSize
+     * @param page     页码，不传时为第一页
+     * @param pageSize 每页记录数，不传时为10，游标分页时最多100
      * @param status   订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+     * @param cursor   上一页返回的nextCursor
+     * @param withTotal 游标分页时是否统计总记录数
      * @return
      */
     @GetMapping("/historyOrders")
     @ApiOperation("历史订单查询")
-    public Result<PageResult> page(int page, int pageSize, Integer status) {
+    public Result<PageResult> page(@RequestParam(defaultValue = "1") int page,
+                                   @RequestParam(defaultValue = "10") int pageSize, Integer status,
+                                   String cursor, Boolean withTotal) {
+        if (cursor != null) {
+            CursorPageResult cursorPageResult = orderService.pageQuery4UserByCursor(cursor, pageSize, status, Boolean.TRUE.equals(withTotal));
+            return Result.success(cursorPageResult);
+        }
         PageResult pageResult = orderService.pageQuery4User(page, pageSize, status);
         return Result.success(pageResult);
     }
@@ -0,0 +1,23 @@
+package com.sky.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 缓存失效事件，本节点删除或清空缓存后发布，收到其他节点的失效通知时也发布（remote为true）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidatedEvent {
+
+    //缓存名称
+    private String cacheName;
+
+    //删除的key，为null表示清空
+    private String key;
+
+    //是否为其他节点发起的失效
+    private boolean remote;
+}
@@ -0,0 +1,56 @@
+package com.sky.event;
+
+import com.sky.entity.Orders;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单状态变更事件，订单状态成功更新后发布
+ * 下单时fromStatus为null；orderTime、amount在调用方已查询出订单时携带，否则为null
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+
+    //订单id
+    private Long orderId;
+
+    //订单号
+    private String number;
+
+    //变更前状态
+    private Integer fromStatus;
+
+    //变更后状态
+    private Integer toStatus;
+
+    //下单时间
+    private LocalDateTime orderTime;
+
+    //订单金额
+    private BigDecimal amount;
+
+    /**
+     * 根据变更前的订单数据构造事件
+     * @param ordersDB 变更前的订单
+     * @param toStatus 变更后状态
+     * @return
+     */
+    public static OrderStatusChangedEvent of(Orders ordersDB, Integer toStatus) {
+        return OrderStatusChangedEvent.builder()
+                .orderId(ordersDB.getId())
+                .number(ordersDB.getNumber())
+                .fromStatus(ordersDB.getStatus())
+                .toStatus(toStatus)
+                .orderTime(ordersDB.getOrderTime())
+                .amount(ordersDB.getAmount())
+                .build();
+    }
+}
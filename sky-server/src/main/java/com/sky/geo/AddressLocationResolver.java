@@ -0,0 +1,64 @@
+package com.sky.geo;
+
+import com.sky.entity.AddressBook;
+import com.sky.mapper.AddressBookMapper;
+import com.sky.utils.GeoHashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * 地址簿坐标解析：在地址新增、修改时异步解析经纬度并写回地址簿，下单时直接使用已保存的坐标
+ */
+@Component
+@Slf4j
+public class AddressLocationResolver {
+
+    //GeoHash编码长度，8位约为±19米
+    private static final int GEOHASH_PRECISION = 8;
+
+    @Autowired
+    private AddressBookMapper addressBookMapper;
+    @Autowired
+    private GeoService geoService;
+
+    /**
+     * 异步解析地址簿坐标
+     * @param addressBookId
+     */
+    @Async
+    public void resolve(Long addressBookId) {
+        AddressBook addressBook = addressBookMapper.getById(addressBookId);
+        if (addressBook == null) {
+            return;
+        }
+
+        String address = addressBook.getCityName() + addressBook.getDistrictName() + addressBook.getDetail();
+        Coordinate coordinate;
+        try {
+            coordinate = geoService.geocode(address);
+        } catch (Exception e) {
+            log.warn("地址簿坐标解析异常：{}，{}", addressBookId, e.getMessage());
+            return;
+        }
+        if (coordinate == null) {
+            log.warn("地址簿坐标解析失败：{}，{}", addressBookId, address);
+            return;
+        }
+
+        //带上解析时的地址内容，解析期间地址被修改时不写入旧地址的坐标
+        AddressBook location = AddressBook.builder()
+                .id(addressBookId)
+                .cityName(addressBook.getCityName())
+                .districtName(addressBook.getDistrictName())
+                .detail(addressBook.getDetail())
+                .latitude(coordinate.getLat())
+                .longitude(coordinate.getLng())
+                .geohash(GeoHashUtil.encode(coordinate.getLat(), coordinate.getLng(), GEOHASH_PRECISION))
+                .build();
+        if (addressBookMapper.updateLocation(location) == 0) {
+            log.info("地址簿在坐标解析期间已修改或删除，丢弃解析结果：{}", addressBookId);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.sky.geo;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于百度地图开放平台的地理服务
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.geo", name = "provider", havingValue = "baidu", matchIfMissing = true)
+@Slf4j
+public class BaiduGeoProvider implements GeoProvider {
+
+    private static final String GEOCODING_URL = "https://api.map.baidu.com/geocoding/v3";
+    private static final String DRIVING_URL = "https://api.map.baidu.com/directionlite/v1/driving";
+
+    @Value("${sky.baidu.ak}")
+    private String ak;
+
+    /**
+     * 地址解析
+     * @param address
+     * @return
+     */
+    public Coordinate geocode(String address) {
+        Map<String, String> map = new HashMap<>();
+        map.put("address", address);
+        map.put("output", "json");
+        map.put("ak", ak);
+
+        String json = HttpClientUtil.doGet(GEOCODING_URL, map);
+        JSONObject jsonObject = JSON.parseObject(json);
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            log.warn("地址解析失败：{}，{}", address, json);
+            return null;
+        }
+
+        //数据解析
+        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
+        return new Coordinate(location.getDoubleValue("lat"), location.getDoubleValue("lng"));
+    }
+
+    /**
+     * 驾车路线规划
+     * @param origin
+     * @param destination
+     * @return
+     */
+    public Integer drivingDistance(Coordinate origin, Coordinate destination) {
+        Map<String, String> map = new HashMap<>();
+        map.put("origin", origin.toLatLng());
+        map.put("destination", destination.toLatLng());
+        map.put("steps_info", "0");
+        map.put("ak", ak);
+
+        String json = HttpClientUtil.doGet(DRIVING_URL, map);
+        JSONObject jsonObject = JSON.parseObject(json);
+        if (jsonObject == null || !"0".equals(jsonObject.getString("status"))) {
+            log.warn("配送路线规划失败：{} -> {}，{}", origin, destination, json);
+            return null;
+        }
+
+        //数据解析
+        JSONObject result = jsonObject.getJSONObject("result");
+        JSONArray jsonArray = (JSONArray) result.get("routes");
+        return ((JSONObject) jsonArray.get(0)).getInteger("distance");
+    }
+}
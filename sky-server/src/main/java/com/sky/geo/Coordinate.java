@@ -0,0 +1,50 @@
+package com.sky.geo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * 经纬度坐标
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Coordinate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //地球平均半径，单位米
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    //纬度
+    private double lat;
+
+    //经度
+    private double lng;
+
+    /**
+     * 转换为百度地图接口使用的 "纬度,经度" 格式，保留6位小数，同时作为缓存key的一部分
+     * @return
+     */
+    public String toLatLng() {
+        return String.format(Locale.ROOT, "%.6f,%.6f", lat, lng);
+    }
+
+    /**
+     * 计算到另一坐标的球面（大圆）距离，单位米
+     * @param other
+     * @return
+     */
+    public double distanceTo(Coordinate other) {
+        double dLat = Math.toRadians(other.lat - lat);
+        double dLng = Math.toRadians(other.lng - lng);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(other.lat))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.sky.geo;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.OrderBusinessException;
+import com.sky.properties.DeliveryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 配送范围校验
+ * 先执行本地判定策略（无网络IO），只有处于边界附近无法确定的地址才调用路线规划
+ */
+@Component
+@Slf4j
+public class DeliveryRangeChecker {
+
+    @Autowired
+    private List<DeliveryRangePolicy> policies;
+    @Autowired
+    private GeoService geoService;
+    @Autowired
+    private DeliveryProperties deliveryProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 校验收货坐标是否在配送范围内，超出范围时抛出业务异常
+     * @param shop
+     * @param destination
+     */
+    public void check(Coordinate shop, Coordinate destination) {
+        RangeDecision decision = evaluateLocally(shop, destination);
+        if (decision == RangeDecision.UNCERTAIN) {
+            //路线规划
+            Integer distance = geoService.drivingDistance(shop, destination);
+            if (distance == null) {
+                throw new OrderBusinessException(MessageConstant.DELIVERY_ROUTE_FAILED);
+            }
+            decision = distance > deliveryProperties.getMaxDistance() ? RangeDecision.REJECT : RangeDecision.ACCEPT;
+            meterRegistry.counter("delivery.range.decisions", "stage", "route", "result", decision.name()).increment();
+        } else {
+            meterRegistry.counter("delivery.range.decisions", "stage", "local", "result", decision.name()).increment();
+        }
+
+        if (decision == RangeDecision.REJECT) {
+            throw new OrderBusinessException(MessageConstant.OUT_OF_DELIVERY_RANGE);
+        }
+    }
+
+    /**
+     * 依次执行本地判定策略
+     * @param shop
+     * @param destination
+     * @return
+     */
+    public RangeDecision evaluateLocally(Coordinate shop, Coordinate destination) {
+        RangeDecision result = RangeDecision.ACCEPT;
+        for (DeliveryRangePolicy policy : policies) {
+            RangeDecision decision = policy.evaluate(shop, destination);
+            if (decision == RangeDecision.REJECT) {
+                return RangeDecision.REJECT;
+            }
+            if (decision == RangeDecision.UNCERTAIN) {
+                result = RangeDecision.UNCERTAIN;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package com.sky.geo;
+
+/**
+ * 配送范围判定策略，按@Order顺序依次执行
+ * 任一策略返回REJECT即拒绝；存在UNCERTAIN时再进行路线规划；全部ACCEPT则直接通过
+ */
+public interface DeliveryRangePolicy {
+
+    /**
+     * 判定收货坐标是否在配送范围内
+     * @param shop 店铺坐标
+     * @param destination 收货坐标
+     * @return
+     */
+    RangeDecision evaluate(Coordinate shop, Coordinate destination);
+}
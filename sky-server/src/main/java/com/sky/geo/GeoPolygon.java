@@ -0,0 +1,68 @@
+package com.sky.geo;
+
+import java.util.List;
+
+/**
+ * 多边形区域（单个闭合环），用于判断坐标是否在配送区域内
+ * 顶点按纬度、经度分别存入数组，并预先计算外包矩形，矩形外的点无需进行射线判断
+ */
+public class GeoPolygon {
+
+    private final double[] lats;
+    private final double[] lngs;
+    private final double minLat;
+    private final double maxLat;
+    private final double minLng;
+    private final double maxLng;
+
+    public GeoPolygon(List<Coordinate> ring) {
+        if (ring == null || ring.size() < 3) {
+            throw new IllegalArgumentException("配送区域至少需要3个顶点");
+        }
+        int n = ring.size();
+        lats = new double[n];
+        lngs = new double[n];
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            Coordinate c = ring.get(i);
+            lats[i] = c.getLat();
+            lngs[i] = c.getLng();
+            minLat = Math.min(minLat, c.getLat());
+            maxLat = Math.max(maxLat, c.getLat());
+            minLng = Math.min(minLng, c.getLng());
+            maxLng = Math.max(maxLng, c.getLng());
+        }
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLng = minLng;
+        this.maxLng = maxLng;
+    }
+
+    /**
+     * 射线法判断坐标是否在多边形内（配送区域范围较小，按平面坐标处理）
+     * @param point
+     * @return
+     */
+    public boolean contains(Coordinate point) {
+        double lat = point.getLat();
+        double lng = point.getLng();
+        if (lat < minLat || lat > maxLat || lng < minLng || lng > maxLng) {
+            return false;
+        }
+
+        boolean inside = false;
+        int n = lats.length;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if ((lats[i] > lat) != (lats[j] > lat)
+                    && lng < (lngs[j] - lngs[i]) * (lat - lats[i]) / (lats[j] - lats[i]) + lngs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    public int size() {
+        return lats.length;
+    }
+}
@@ -0,0 +1,22 @@
+package com.sky.geo;
+
+/**
+ * 地理服务提供方（地址解析、路线规划）
+ */
+public interface GeoProvider {
+
+    /**
+     * 地址解析为经纬度坐标
+     * @param address
+     * @return 解析失败时返回null
+     */
+    Coordinate geocode(String address);
+
+    /**
+     * 驾车路线规划距离
+     * @param origin
+     * @param destination
+     * @return 距离（米），规划失败时返回null
+     */
+    Integer drivingDistance(Coordinate origin, Coordinate destination);
+}
@@ -0,0 +1,186 @@
+package com.sky.geo;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.GeoProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地理解析缓存层
+ * 一级缓存为本地有界LRU/TTL缓存，二级缓存为redis（多节点共享），都未命中时才调用GeoProvider
+ * 缓存内容：地址 -> 坐标，坐标对 -> 路线距离；店铺坐标启动时解析一次，店铺地址配置变化时重新解析
+ */
+@Component
+@Slf4j
+public class GeoService {
+
+    private static final String ADDRESS_KEY_PREFIX = "geo:address:";
+    private static final String DISTANCE_KEY_PREFIX = "geo:distance:";
+    private static final String SHOP_ADDRESS_PROPERTY = "sky.shop.address";
+
+    @Autowired
+    private GeoProvider geoProvider;
+    @Autowired
+    private GeoProperties geoProperties;
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private Environment environment;
+
+    private Cache<String, Coordinate> addressCache;
+    private Cache<String, Integer> distanceCache;
+
+    //店铺地址及其坐标，地址与配置不一致时重新解析
+    private volatile ShopLocation shopLocation;
+
+    @PostConstruct
+    public void init() {
+        addressCache = Caffeine.newBuilder()
+                .maximumSize(geoProperties.getLocalMaxSize())
+                .expireAfterWrite(geoProperties.getLocalTtl())
+                .recordStats()
+                .build();
+        distanceCache = Caffeine.newBuilder()
+                .maximumSize(geoProperties.getLocalMaxSize())
+                .expireAfterWrite(geoProperties.getLocalTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, addressCache, "geo.address");
+        CaffeineCacheMetrics.monitor(meterRegistry, distanceCache, "geo.distance");
+    }
+
+    /**
+     * 启动完成后预先解析店铺坐标，解析失败不影响启动，下单时会再次尝试
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpShopCoordinate() {
+        try {
+            Coordinate coordinate = getShopCoordinate();
+            log.info("店铺坐标解析完成：{}", coordinate);
+        } catch (Exception e) {
+            log.warn("店铺坐标预解析失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取店铺坐标
+     * @return 解析失败时返回null
+     */
+    public Coordinate getShopCoordinate() {
+        String address = environment.getProperty(SHOP_ADDRESS_PROPERTY);
+        ShopLocation current = shopLocation;
+        if (current != null && Objects.equals(current.address, address)) {
+            return current.coordinate;
+        }
+
+        Coordinate coordinate = geocode(address);
+        if (coordinate != null) {
+            if (current != null) {
+                log.info("店铺地址变更，重新解析坐标：{} -> {}", current.address, address);
+            }
+            shopLocation = new ShopLocation(address, coordinate);
+        }
+        return coordinate;
+    }
+
+    /**
+     * 地址解析（带缓存）
+     * @param address
+     * @return 解析失败时返回null，失败结果不缓存
+     */
+    public Coordinate geocode(String address) {
+        if (address == null) {
+            return null;
+        }
+        Coordinate coordinate = addressCache.getIfPresent(address);
+        if (coordinate != null) {
+            return coordinate;
+        }
+
+        String key = ADDRESS_KEY_PREFIX + address;
+        coordinate = (Coordinate) getFromRedis(key, "address");
+        if (coordinate == null) {
+            meterRegistry.counter("geo.provider.calls", "type", "geocode").increment();
+            coordinate = geoProvider.geocode(address);
+            if (coordinate == null) {
+                return null;
+            }
+            putToRedis(key, coordinate);
+        }
+        addressCache.put(address, coordinate);
+        return coordinate;
+    }
+
+    /**
+     * 驾车路线距离（带缓存）
+     * @param origin
+     * @param destination
+     * @return 距离（米），规划失败时返回null，失败结果不缓存
+     */
+    public Integer drivingDistance(Coordinate origin, Coordinate destination) {
+        String pair = origin.toLatLng() + "|" + destination.toLatLng();
+        Integer distance = distanceCache.getIfPresent(pair);
+        if (distance != null) {
+            return distance;
+        }
+
+        String key = DISTANCE_KEY_PREFIX + pair;
+        distance = (Integer) getFromRedis(key, "distance");
+        if (distance == null) {
+            meterRegistry.counter("geo.provider.calls", "type", "driving").increment();
+            distance = geoProvider.drivingDistance(origin, destination);
+            if (distance == null) {
+                return null;
+            }
+            putToRedis(key, distance);
+        }
+        distanceCache.put(pair, distance);
+        return distance;
+    }
+
+    /**
+     * 读取二级缓存，redis不可用时视为未命中
+     */
+    private Object getFromRedis(String key, String cacheName) {
+        Object value = null;
+        try {
+            value = redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("读取地理缓存失败：{}，{}", key, e.getMessage());
+        }
+        meterRegistry.counter("geo.cache.redis", "cache", cacheName, "result", value != null ? "hit" : "miss").increment();
+        return value;
+    }
+
+    private void putToRedis(String key, Object value) {
+        try {
+            redisTemplate.opsForValue().set(key, value, geoProperties.getRedisTtl().getSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入地理缓存失败：{}，{}", key, e.getMessage());
+        }
+    }
+
+    private static class ShopLocation {
+        private final String address;
+        private final Coordinate coordinate;
+
+        ShopLocation(String address, Coordinate coordinate) {
+            this.address = address;
+            this.coordinate = coordinate;
+        }
+    }
+}
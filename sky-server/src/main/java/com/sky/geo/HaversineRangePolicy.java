@@ -0,0 +1,30 @@
+package com.sky.geo;
+
+import com.sky.properties.DeliveryProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 球面距离预判：路线距离不会小于球面距离
+ * 球面距离超过最大配送距离 -> 拒绝；乘以绕行系数仍在范围内 -> 通过；介于两者之间 -> 需要路线规划
+ */
+@Component
+@Order(10)
+public class HaversineRangePolicy implements DeliveryRangePolicy {
+
+    @Autowired
+    private DeliveryProperties deliveryProperties;
+
+    public RangeDecision evaluate(Coordinate shop, Coordinate destination) {
+        double distance = shop.distanceTo(destination);
+        int maxDistance = deliveryProperties.getMaxDistance();
+        if (distance > maxDistance) {
+            return RangeDecision.REJECT;
+        }
+        if (distance * deliveryProperties.getDetourFactor() <= maxDistance) {
+            return RangeDecision.ACCEPT;
+        }
+        return RangeDecision.UNCERTAIN;
+    }
+}
@@ -0,0 +1,47 @@
+package com.sky.geo;
+
+import com.sky.properties.DeliveryProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 配送区域围栏：配置了sky.delivery.zone时，区域外的地址直接拒绝
+ */
+@Component
+@Order(0)
+@Slf4j
+public class PolygonZonePolicy implements DeliveryRangePolicy {
+
+    @Autowired
+    private DeliveryProperties deliveryProperties;
+
+    private GeoPolygon zone;
+
+    @PostConstruct
+    public void init() {
+        List<String> points = deliveryProperties.getZone();
+        if (points == null || points.isEmpty()) {
+            return;
+        }
+        List<Coordinate> ring = new ArrayList<>();
+        for (String point : points) {
+            String[] latLng = point.split(",");
+            ring.add(new Coordinate(Double.parseDouble(latLng[0].trim()), Double.parseDouble(latLng[1].trim())));
+        }
+        zone = new GeoPolygon(ring);
+        log.info("加载配送区域，顶点数：{}", zone.size());
+    }
+
+    public RangeDecision evaluate(Coordinate shop, Coordinate destination) {
+        if (zone == null || zone.contains(destination)) {
+            return RangeDecision.ACCEPT;
+        }
+        return RangeDecision.REJECT;
+    }
+}
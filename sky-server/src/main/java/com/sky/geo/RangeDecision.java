@@ -0,0 +1,23 @@
+package com.sky.geo;
+
+/**
+ * 配送范围判定结果
+ */
+public enum RangeDecision {
+
+    /**
+     * 在配送范围内（或该策略不反对）
+     */
+    ACCEPT,
+
+    /**
+     * 超出配送范围
+     */
+    REJECT,
+
+    /**
+     * 处于边界附近无法确定，需要路线规划
+     */
+    UNCERTAIN
+
+}
@@ -0,0 +1,61 @@
+package com.sky.geo;
+
+import com.sky.properties.GeoProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地离线模拟的地理服务，不发起任何网络请求，用于离线压测缓存层
+ * 同一地址总是解析到同一坐标（中心点附近约±10km），路线距离按球面距离的1.3倍估算
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.geo", name = "provider", havingValue = "stub")
+@Slf4j
+public class StubGeoProvider implements GeoProvider {
+
+    //模拟坐标的偏移范围（度），约±10km
+    private static final double SPREAD = 0.09;
+    //路线距离相对球面距离的绕行系数
+    private static final double DETOUR_FACTOR = 1.3;
+
+    @Autowired
+    private GeoProperties geoProperties;
+
+    /**
+     * 根据地址的hash生成固定坐标
+     * @param address
+     * @return
+     */
+    public Coordinate geocode(String address) {
+        simulateLatency();
+        int hash = address.hashCode();
+        double latOffset = ((hash & 0xFFFF) / 65535.0 - 0.5) * 2 * SPREAD;
+        double lngOffset = (((hash >>> 16) & 0xFFFF) / 65535.0 - 0.5) * 2 * SPREAD;
+        return new Coordinate(geoProperties.getStubCenterLat() + latOffset, geoProperties.getStubCenterLng() + lngOffset);
+    }
+
+    /**
+     * 按球面距离估算路线距离
+     * @param origin
+     * @param destination
+     * @return
+     */
+    public Integer drivingDistance(Coordinate origin, Coordinate destination) {
+        simulateLatency();
+        return (int) Math.round(origin.distanceTo(destination) * DETOUR_FACTOR);
+    }
+
+    private void simulateLatency() {
+        long latency = geoProperties.getStubLatencyMs();
+        if (latency <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -23,6 +23,7 @@ public interface AddressBookMapper {
             "         district_name, detail, label, is_default)" +
             "        values (#{userId}, #{consignee}, #{phone}, #{sex}, #{provinceCode}, #{provinceName}, #{cityCode}, #{cityName}," +
             "                #{districtCode}, #{districtName}, #{detail}, #{label}, #{isDefault})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(AddressBook addressBook);
 
     /**
@@ -46,6 +47,15 @@ public interface AddressBookMapper {
     @Update("update address_book set is_default = #{isDefault} where user_id = #{userId}")
     void updateIsDefaultByUserId(AddressBook addressBook);
 
+    /**
+     * 根据id更新地址的经纬度坐标，只有地址内容仍与解析时一致才更新
+     * @param addressBook
+     * @return 更新的行数，地址在解析期间被修改时为0
+     */
+    @Update("update address_book set latitude = #{latitude}, longitude = #{longitude}, geohash = #{geohash} " +
+            "where id = #{id} and city_name <=> #{cityName} and district_name <=> #{districtName} and detail <=> #{detail}")
+    int updateLocation(AddressBook addressBook);
+
     /**
      * 根据id删除地址
      * @param id
@@ -0,0 +1,39 @@
+package com.sky.mapper;
+
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 查询时间段内已核对的汇总数据
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return
+     */
+    @Select("select * from daily_business_stats where stat_date between #{begin} and #{end} and reconciled = 1 order by stat_date")
+    List<DailyBusinessStats> getReconciledByDateRange(LocalDate begin, LocalDate end);
+
+    /**
+     * 增量累加某一天的汇总数据，记录不存在时插入（未核对状态）
+     * @param delta 各字段为增量，可以为负数
+     */
+    @Insert("insert into daily_business_stats (stat_date, turnover, valid_order_count, total_order_count, cancelled_order_count, new_users, reconciled, update_time) " +
+            "values (#{statDate}, #{turnover}, #{validOrderCount}, #{totalOrderCount}, #{cancelledOrderCount}, #{newUsers}, 0, now()) " +
+            "on duplicate key update turnover = turnover + values(turnover), valid_order_count = valid_order_count + values(valid_order_count), " +
+            "total_order_count = total_order_count + values(total_order_count), cancelled_order_count = cancelled_order_count + values(cancelled_order_count), " +
+            "new_users = new_users + values(new_users), update_time = now()")
+    void increment(DailyBusinessStats delta);
+
+    /**
+     * 批量覆盖写入按原始数据重新统计的汇总数据，并标记为已核对
+     * @param statsList
+     */
+    void upsertBatch(List<DailyBusinessStats> statsList);
+}
@@ -5,6 +5,7 @@ import com.sky.annotation.AutoFill;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
 import com.sky.enumeration.OperationType;
+import com.sky.vo.DishOverViewVO;
 import com.sky.vo.DishVO;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
@@ -81,4 +82,14 @@ public interface DishMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 一次扫描统计起售、停售的菜品数量
+     * @param enableStatus 起售状态
+     * @param disableStatus 停售状态
+     * @return
+     */
+    @Select("select coalesce(sum(case when status = #{enableStatus} then 1 else 0 end), 0) as sold, " +
+            "coalesce(sum(case when status = #{disableStatus} then 1 else 0 end), 0) as discontinued from dish")
+    DishOverViewVO getStatusStats(Integer enableStatus, Integer disableStatus);
 }
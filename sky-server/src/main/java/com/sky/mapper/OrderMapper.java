@@ -1,14 +1,21 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
+import com.sky.cluster.Shard;
+import com.sky.dto.GoodsDailySalesDTO;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderDailyStatDTO;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.dto.OrderStatusStatDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -45,13 +52,17 @@ public interface OrderMapper {
     void updateStatus(Integer orderStatus, Integer orderPaidStatus, LocalDateTime check_out_time, String orderNumber);
 
     /**
-     * 根据订单状态和下单时间查询订单
+     * 根据订单状态和下单时间分批查询订单id，按id升序，从lastId之后开始，只查询当前节点负责的分片
      * @param status
      * @param orderTime
+     * @param shard 分片，mod(id, total) = index
+     * @param lastId 上一批的最大id
+     * @param limit
      * @return
      */
-    @Select("select * from orders where status=#{status} and order_time<#{orderTime}")
-    List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
+    @Select("select id from orders where status=#{status} and order_time<#{orderTime} " +
+            "and mod(id, #{shard.total})=#{shard.index} and id>#{lastId} order by id limit #{limit}")
+    List<Long> getIdsByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime, Shard shard, Long lastId, Integer limit);
 
     /**
      * 分页条件查询并按下单时间排序
@@ -59,6 +70,26 @@ public interface OrderMapper {
      */
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 游标分页条件查询，按下单时间、id倒序，返回游标(cursorTime, cursorId)之后的limit条数据
+     * @param query
+     * @param cursorTime 为null时从第一条开始
+     * @param cursorId
+     * @param limit
+     * @return
+     */
+    List<Orders> pageQueryByCursor(@Param("query") OrdersPageQueryDTO query,
+                                   @Param("cursorTime") LocalDateTime cursorTime,
+                                   @Param("cursorId") Long cursorId,
+                                   @Param("limit") int limit);
+
+    /**
+     * 根据分页查询条件统计订单数量
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    long countByQuery(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 根据id查询订单
      * @param id
@@ -73,6 +104,39 @@ public interface OrderMapper {
     @Select("select count(id) from orders where status = #{status}")
     Integer countStatus(Integer status);
 
+    /**
+     * 订单状态为指定状态之一时才更新（条件更新），按id更新，id为空时按订单号更新
+     * @param orders
+     * @param fromStatuses 允许的原状态
+     * @return 影响行数，0表示订单不存在或状态不符
+     */
+    int updateIfStatusIn(@Param("orders") Orders orders, @Param("fromStatuses") Collection<Integer> fromStatuses);
+
+    /**
+     * 查询指定id中状态为指定状态之一的订单并加行锁，用于批量变更前确定实际变更的订单
+     * @param ids
+     * @param fromStatuses
+     * @return
+     */
+    List<Orders> getByIdsAndStatusForUpdate(@Param("ids") Collection<Long> ids, @Param("fromStatuses") Collection<Integer> fromStatuses);
+
+    /**
+     * 批量条件更新：id在指定范围内且状态为指定状态之一时才更新
+     * @param ids
+     * @param fromStatuses 允许的原状态
+     * @param orders 需要更新的字段
+     * @return 影响行数
+     */
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("fromStatuses") Collection<Integer> fromStatuses,
+                          @Param("orders") Orders orders);
+
+    /**
+     * 一次扫描统计各状态的订单数量
+     * @return 只包含有订单的状态
+     */
+    @Select("select status, count(id) as count from orders group by status")
+    List<OrderStatusCountDTO> countGroupByStatus();
+
     /**
      * 根据动态条件统计营业额数据
      * @param map
@@ -86,6 +150,19 @@ public interface OrderMapper {
      */
     Integer countByMap(Map map);
 
+    /**
+     * 一次扫描按状态统计时间段内的订单数量和营业额
+     * @param begin 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @param toBeConfirmedStatus 待接单状态
+     * @param confirmedStatus 已接单状态
+     * @param completedStatus 已完成状态，同时用于统计营业额
+     * @param cancelledStatus 已取消状态
+     * @return
+     */
+    OrderStatusStatDTO getStatusStats(LocalDateTime begin, LocalDateTime end, Integer toBeConfirmedStatus,
+                                      Integer confirmedStatus, Integer completedStatus, Integer cancelledStatus);
+
     /**
      * 得到销量前十
      * @param begin
@@ -93,4 +170,23 @@ public interface OrderMapper {
      * @return
      */
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天分组统计每个商品的销量（一条语句返回整个时间段）
+     * @param begin 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @param status 计入销量的订单状态
+     * @return 只包含有销量的日期和商品
+     */
+    List<GoodsDailySalesDTO> getDailySales(LocalDateTime begin, LocalDateTime end, Integer status);
+
+    /**
+     * 按天分组统计订单总数、有效订单数、取消订单数和营业额（一条语句返回整个时间段）
+     * @param begin 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @param validStatus 有效订单状态
+     * @param cancelledStatus 取消订单状态
+     * @return 只包含有订单的日期
+     */
+    List<OrderDailyStatDTO> getDailyStats(LocalDateTime begin, LocalDateTime end, Integer validStatus, Integer cancelledStatus);
 }
@@ -6,6 +6,7 @@ import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.entity.Setmeal;
 import com.sky.enumeration.OperationType;
 import com.sky.vo.DishItemVO;
+import com.sky.vo.SetmealOverViewVO;
 import com.sky.vo.SetmealVO;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
@@ -84,4 +85,14 @@ public interface SetmealMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 一次扫描统计起售、停售的套餐数量
+     * @param enableStatus 起售状态
+     * @param disableStatus 停售状态
+     * @return
+     */
+    @Select("select coalesce(sum(case when status = #{enableStatus} then 1 else 0 end), 0) as sold, " +
+            "coalesce(sum(case when status = #{disableStatus} then 1 else 0 end), 0) as discontinued from setmeal")
+    SetmealOverViewVO getStatusStats(Integer enableStatus, Integer disableStatus);
 }
@@ -1,9 +1,12 @@
 package com.sky.mapper;
 
+import com.sky.dto.UserDailyStatDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -31,4 +34,12 @@ public interface UserMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 按天分组统计新增用户数
+     * @param begin 开始时间（包含）
+     * @param end 结束时间（不包含）
+     * @return 只包含有新增用户的日期
+     */
+    List<UserDailyStatDTO> getDailyNewUsers(LocalDateTime begin, LocalDateTime end);
 }
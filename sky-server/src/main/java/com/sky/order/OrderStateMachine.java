@@ -0,0 +1,106 @@
+package com.sky.order;
+
+import com.sky.constant.MessageConstant;
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangedEvent;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 订单状态机
+ * 每次状态变更只执行一条 update orders set status = ? ... where id = ? and status in (...)，
+ * 根据影响行数判断变更是否成功：并发操作同一订单时只有一个能成功，其余的按订单状态错误处理，无需加锁
+ * 变更成功后发布订单状态变更事件
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 不预先查询订单，直接按变更允许的原状态条件更新
+     * 只适用于原状态只有一种的变更，事件中的fromStatus才是确定的；
+     * 原状态有多种的变更（如取消）需要先查询订单，使用fire(transition, ordersDB, orders)
+     * @param transition
+     * @param orders 需要更新的字段，id或number至少有一个，status由状态机设置
+     */
+    public void fire(OrderTransition transition, Orders orders) {
+        if (transition.getFromStatuses().size() != 1) {
+            throw new IllegalArgumentException("原状态有多种的订单状态变更需要先查询订单：" + transition);
+        }
+        orders.setStatus(transition.getToStatus());
+        int updated = orderMapper.updateIfStatusIn(orders, transition.getFromStatuses());
+        if (updated == 0) {
+            log.info("订单状态变更失败：{}，订单：{}", transition, orders.getId() != null ? orders.getId() : orders.getNumber());
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
+        eventPublisher.publishEvent(OrderStatusChangedEvent.builder()
+                .orderId(orders.getId())
+                .number(orders.getNumber())
+                .fromStatus(transition.getFromStatuses().iterator().next())
+                .toStatus(transition.getToStatus())
+                .build());
+    }
+
+    /**
+     * 已查询出订单时（例如需要根据支付状态退款），以查询到的状态作为更新条件，期间订单被其他操作修改则失败
+     * @param transition
+     * @param ordersDB 查询出的订单
+     * @param orders 需要更新的字段，status由状态机设置
+     */
+    public void fire(OrderTransition transition, Orders ordersDB, Orders orders) {
+        if (ordersDB == null || !transition.canFire(ordersDB.getStatus())) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
+        orders.setId(ordersDB.getId());
+        orders.setStatus(transition.getToStatus());
+        int updated = orderMapper.updateIfStatusIn(orders, Collections.singleton(ordersDB.getStatus()));
+        if (updated == 0) {
+            log.info("订单状态已被修改，变更失败：{}，订单：{}", transition, ordersDB.getId());
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
+        eventPublisher.publishEvent(OrderStatusChangedEvent.of(ordersDB, transition.getToStatus()));
+    }
+
+    /**
+     * 批量状态变更：先锁定其中状态允许变更的订单，再用一条条件更新语句变更这些订单，并逐个发布事件
+     * @param transition
+     * @param ids 需要变更的订单id
+     * @param orders 需要更新的字段，status由状态机设置
+     * @return 实际变更的订单（变更前的数据）
+     */
+    @Transactional
+    public List<Orders> fireBatch(OrderTransition transition, List<Long> ids, Orders orders) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Orders> ordersList = orderMapper.getByIdsAndStatusForUpdate(ids, transition.getFromStatuses());
+        if (ordersList.isEmpty()) {
+            return ordersList;
+        }
+
+        List<Long> lockedIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        orders.setStatus(transition.getToStatus());
+        orderMapper.updateStatusByIds(lockedIds, transition.getFromStatuses(), orders);
+        for (Orders ordersDB : ordersList) {
+            eventPublisher.publishEvent(OrderStatusChangedEvent.of(ordersDB, transition.getToStatus()));
+        }
+        return ordersList;
+    }
+}
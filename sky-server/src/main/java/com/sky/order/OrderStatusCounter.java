@@ -0,0 +1,125 @@
+package com.sky.order;
+
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangedEvent;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 各状态订单数量计数器
+ * 计数保存在redis hash中（field为订单状态），订单状态变更提交后通过lua脚本原子地把旧状态减1、新状态加1
+ * 定时任务按数据库重新统计并覆盖，修正异常情况下的误差
+ */
+@Component
+@Slf4j
+public class OrderStatusCounter {
+
+    private static final String KEY = "order:status:count";
+
+    //ARGV[1]旧状态（新订单为空串），ARGV[2]新状态
+    private static final String TRANSITION_SCRIPT =
+            "if ARGV[1] ~= '' then redis.call('HINCRBY', KEYS[1], ARGV[1], -1) end " +
+            "return redis.call('HINCRBY', KEYS[1], ARGV[2], 1)";
+
+    //所有订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+    private static final List<Integer> ALL_STATUS = Arrays.asList(Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED,
+            Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS, Orders.COMPLETED, Orders.CANCELLED);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    private final DefaultRedisScript<Long> transitionScript = new DefaultRedisScript<>(TRANSITION_SCRIPT, Long.class);
+
+    /**
+     * 订单状态变更提交后更新计数，失败时只记录日志，由定时核对修正
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.getToStatus() == null || event.getToStatus().equals(event.getFromStatus())) {
+            return;
+        }
+        String fromStatus = event.getFromStatus() == null ? "" : String.valueOf(event.getFromStatus());
+        try {
+            stringRedisTemplate.execute(transitionScript, Collections.singletonList(KEY),
+                    fromStatus, String.valueOf(event.getToStatus()));
+        } catch (Exception e) {
+            log.warn("更新订单状态计数失败：{}，{}", event, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询指定状态的订单数量，计数不存在（redis数据丢失）时先按数据库重新统计，redis不可用时直接查询数据库
+     * @param statuses
+     * @return 订单状态 -> 数量
+     */
+    public Map<Integer, Integer> getCounts(Integer... statuses) {
+        List<Object> fields = new ArrayList<>();
+        for (Integer status : statuses) {
+            fields.add(String.valueOf(status));
+        }
+
+        List<Object> values;
+        try {
+            values = stringRedisTemplate.opsForHash().multiGet(KEY, fields);
+        } catch (Exception e) {
+            log.warn("读取订单状态计数失败，改为查询数据库：{}", e.getMessage());
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Integer status : statuses) {
+                counts.put(status, orderMapper.countStatus(status));
+            }
+            return counts;
+        }
+        if (values.stream().allMatch(Objects::isNull)) {
+            Map<Integer, Integer> allCounts = reconcile();
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Integer status : statuses) {
+                counts.put(status, allCounts.getOrDefault(status, 0));
+            }
+            return counts;
+        }
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < statuses.length; i++) {
+            Object value = values.get(i);
+            counts.put(statuses[i], value == null ? 0 : Math.max(0, Integer.parseInt(value.toString())));
+        }
+        return counts;
+    }
+
+    /**
+     * 按数据库重新统计各状态的订单数量并覆盖redis中的计数
+     * 统计与覆盖之间发生的状态变更可能被覆盖掉，由下一次核对修正
+     * @return 订单状态 -> 数量
+     */
+    public Map<Integer, Integer> reconcile() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Integer status : ALL_STATUS) {
+            counts.put(status, 0);
+        }
+        for (OrderStatusCountDTO statusCount : orderMapper.countGroupByStatus()) {
+            counts.put(statusCount.getStatus(), statusCount.getCount());
+        }
+
+        Map<String, String> hash = new HashMap<>();
+        counts.forEach((status, count) -> hash.put(String.valueOf(status), String.valueOf(count)));
+        stringRedisTemplate.opsForHash().putAll(KEY, hash);
+        return counts;
+    }
+}
@@ -0,0 +1,154 @@
+package com.sky.order;
+
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangedEvent;
+import com.sky.properties.OrderProperties;
+import io.netty.util.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 订单支付超时调度
+ * 下单后把订单id和超时时间写入redis有序集合（多节点共享），同时在本节点的时间轮中注册，到期时立即处理；
+ * 处理时通过lua脚本原子地取出并删除已到期的订单，因此多个节点不会重复处理，再用一条条件更新批量取消
+ * 节点宕机导致时间轮丢失时，由定时任务低频检查有序集合兜底；redis数据丢失时由数据库扫描兜底
+ */
+@Component
+@Slf4j
+public class OrderTimeoutScheduler {
+
+    private static final String KEY = "order:timeout";
+
+    //取出分数（超时时间）不大于ARGV[1]的前ARGV[2]个订单并删除
+    private static final String CLAIM_SCRIPT =
+            "local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #ids > 0 then redis.call('ZREM', KEYS[1], unpack(ids)) end " +
+            "return ids";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderProperties orderProperties;
+
+    private final DefaultRedisScript<List> claimScript = new DefaultRedisScript<>(CLAIM_SCRIPT, List.class);
+
+    //时间轮只负责按时触发，实际的取消在单独的线程中执行，避免阻塞时间轮
+    private HashedWheelTimer wheelTimer;
+    private ExecutorService drainExecutor;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        wheelTimer = new HashedWheelTimer(runnable -> {
+            Thread thread = new Thread(runnable, "order-timeout-wheel");
+            thread.setDaemon(true);
+            return thread;
+        }, 100, TimeUnit.MILLISECONDS, 1024);
+        drainExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-timeout-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        wheelTimer.stop();
+        drainExecutor.shutdownNow();
+    }
+
+    /**
+     * 新订单提交后注册超时时间，订单离开待付款状态后移除
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        try {
+            if (event.getFromStatus() == null && Orders.PENDING_PAYMENT.equals(event.getToStatus())) {
+                register(event.getOrderId(), event.getOrderTime());
+            } else if (Orders.PENDING_PAYMENT.equals(event.getFromStatus()) && event.getOrderId() != null) {
+                stringRedisTemplate.opsForZSet().remove(KEY, String.valueOf(event.getOrderId()));
+            }
+        } catch (Exception e) {
+            log.warn("更新订单超时调度失败：{}，{}", event, e.getMessage());
+        }
+    }
+
+    /**
+     * 注册订单的支付超时时间
+     * @param orderId
+     * @param orderTime 下单时间
+     */
+    public void register(Long orderId, LocalDateTime orderTime) {
+        long deadline = orderTime.plus(orderProperties.getPaymentTimeout())
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        stringRedisTemplate.opsForZSet().add(KEY, String.valueOf(orderId), deadline);
+        long delay = Math.max(0, deadline - System.currentTimeMillis());
+        wheelTimer.newTimeout(timeout -> scheduleDrain(), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 异步处理已到期的订单，同一时刻多个订单到期时合并为一次处理
+     */
+    public void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            drainExecutor.execute(() -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    /**
+     * 分批取出已到期的订单并批量取消
+     * 取出后取消失败的订单不再留在有序集合中，由数据库扫描兜底
+     */
+    public synchronized void drain() {
+        int batchSize = orderProperties.getTimeoutBatchSize();
+        while (true) {
+            List<String> claimed;
+            try {
+                claimed = stringRedisTemplate.execute(claimScript, Collections.singletonList(KEY),
+                        String.valueOf(System.currentTimeMillis()), String.valueOf(batchSize));
+            } catch (Exception e) {
+                log.warn("读取到期订单失败：{}", e.getMessage());
+                return;
+            }
+            if (claimed == null || claimed.isEmpty()) {
+                return;
+            }
+
+            List<Long> ids = claimed.stream().map(Long::valueOf).collect(Collectors.toList());
+            try {
+                Orders orders = new Orders();
+                orders.setCancelReason("订单超时，自动取消");
+                orders.setCancelTime(LocalDateTime.now());
+                List<Orders> cancelled = orderStateMachine.fireBatch(OrderTransition.TIMEOUT_CANCEL, ids, orders);
+                log.info("超时订单取消：到期{}个，取消{}个", ids.size(), cancelled.size());
+            } catch (Exception e) {
+                log.error("超时订单取消失败：{}", ids, e);
+            }
+            if (claimed.size() < batchSize) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.sky.sales;
+
+import com.sky.cluster.ClusterNode;
+import com.sky.dto.GoodsDailySalesDTO;
+import com.sky.dto.GoodsSalesDTO;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangedEvent;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.ReportProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时销量排名统计
+ * 订单完成时按下单日期累加到当天的Space-Saving计数中，查询任意日期范围时合并各天的计数
+ * 各节点定期把自己的计数写入redis（key为日期，hash field为集群节点id），并读取其他节点的计数用于合并；重启时从redis恢复本节点的计数
+ * 已结束的日期每天按数据库重建一次（写入hash field "sql"），修正宕机、未及时写入redis等原因丢失的事件，
+ * 重建后该日期只使用重建结果；开始统计之前且尚未重建的日期、超过保留天数的日期无法通过内存统计，由调用方回退到数据库查询
+ */
+@Component
+@Slf4j
+public class SalesTopTracker {
+
+    private static final String KEY_PREFIX = "sales:top:";
+    //第一个完整统计的日期
+    private static final String SINCE_KEY = "sales:top:since";
+    //按数据库重建的计数在hash中的field
+    private static final String REBUILT_FIELD = "sql";
+
+    @Autowired
+    private ReportProperties reportProperties;
+    @Autowired
+    private ClusterNode clusterNode;
+    @Autowired
+    private OrderDetailMapper orderDetailMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    //本节点的每日计数
+    private final Map<LocalDate, SpaceSavingSketch> localBuckets = new ConcurrentHashMap<>();
+    //有变化、尚未写入redis的日期
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+    //其他节点的每日计数（已合并），定期从redis刷新
+    private volatile Map<LocalDate, SpaceSavingSketch> remoteBuckets = Collections.emptyMap();
+    //按数据库重建的每日计数（精确值），定期从redis刷新
+    private volatile Map<LocalDate, SpaceSavingSketch> rebuiltBuckets = Collections.emptyMap();
+    //为null表示尚未从redis完成初始化，此时不提供内存统计
+    private volatile LocalDate trackingSince;
+
+    /**
+     * 启动完成后从redis恢复本节点的计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        try {
+            initTrackingSince();
+            int restored = 0;
+            for (LocalDate date : retainedDays()) {
+                Map<String, Long> counts = (Map<String, Long>) redisTemplate.opsForHash().get(KEY_PREFIX + date, getNodeId());
+                if (counts != null) {
+                    getBucket(date).merge(SpaceSavingSketch.fromMap(getCapacity(), counts));
+                    restored++;
+                }
+            }
+            refreshRemote();
+            log.info("销量排名统计初始化完成，统计开始日期：{}，恢复{}天的计数", trackingSince, restored);
+        } catch (Exception e) {
+            log.warn("销量排名统计初始化失败，暂时使用数据库查询：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 订单完成时累加销量，已完成的订单被取消时扣减，在事务提交后异步执行
+     * @param event
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        boolean completed = Orders.COMPLETED.equals(event.getToStatus()) && !Orders.COMPLETED.equals(event.getFromStatus());
+        boolean reverted = Orders.COMPLETED.equals(event.getFromStatus()) && !Orders.COMPLETED.equals(event.getToStatus());
+        if (!completed && !reverted) {
+            return;
+        }
+
+        try {
+            LocalDateTime orderTime = event.getOrderTime();
+            if (orderTime == null) {
+                orderTime = orderMapper.getById(event.getOrderId()).getOrderTime();
+            }
+            LocalDate date = orderTime.toLocalDate();
+            //已重建的日期只使用重建结果，之后的变化（如已完成订单被取消）由下一次重建统计
+            if (date.isBefore(LocalDate.now().minusDays(getRetentionDays() - 1)) || rebuiltBuckets.containsKey(date)) {
+                return;
+            }
+
+            SpaceSavingSketch bucket = getBucket(date);
+            for (OrderDetail orderDetail : orderDetailMapper.getByOrderId(event.getOrderId())) {
+                if (completed) {
+                    bucket.add(orderDetail.getName(), orderDetail.getNumber());
+                } else {
+                    bucket.subtract(orderDetail.getName(), orderDetail.getNumber());
+                }
+            }
+            dirtyDays.add(date);
+        } catch (Exception e) {
+            log.warn("更新销量排名统计失败：{}，{}", event, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询日期范围内销量前n的商品
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @param n
+     * @return 范围不在内存统计内时返回null
+     */
+    public List<GoodsSalesDTO> top(LocalDate begin, LocalDate end, int n) {
+        LocalDate since = trackingSince;
+        LocalDate earliest = LocalDate.now().minusDays(getRetentionDays() - 1);
+        if (begin.isBefore(earliest)) {
+            return null;
+        }
+
+        SpaceSavingSketch merged = new SpaceSavingSketch(getCapacity());
+        Map<LocalDate, SpaceSavingSketch> rebuilt = rebuiltBuckets;
+        Map<LocalDate, SpaceSavingSketch> remote = remoteBuckets;
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            SpaceSavingSketch exact = rebuilt.get(date);
+            if (exact != null) {
+                merged.merge(exact);
+                continue;
+            }
+            if (since == null || date.isBefore(since)) {
+                return null;
+            }
+            SpaceSavingSketch local = localBuckets.get(date);
+            if (local != null) {
+                merged.merge(local);
+            }
+            SpaceSavingSketch other = remote.get(date);
+            if (other != null) {
+                merged.merge(other);
+            }
+        }
+
+        List<GoodsSalesDTO> top = new ArrayList<>();
+        merged.top(n).forEach((name, number) -> {
+            if (number > 0) {
+                top.add(new GoodsSalesDTO(name, number.intValue()));
+            }
+        });
+        return top;
+    }
+
+    /**
+     * 把有变化的计数写入redis，并清理超过保留天数的计数
+     */
+    public void snapshot() {
+        LocalDate earliest = LocalDate.now().minusDays(getRetentionDays() - 1);
+        localBuckets.keySet().removeIf(date -> date.isBefore(earliest));
+        dirtyDays.removeIf(date -> date.isBefore(earliest));
+
+        for (LocalDate date : new ArrayList<>(dirtyDays)) {
+            dirtyDays.remove(date);
+            String key = KEY_PREFIX + date;
+            try {
+                redisTemplate.opsForHash().put(key, getNodeId(), localBuckets.get(date).toMap());
+                redisTemplate.expire(key, getRetentionDays() + 1, TimeUnit.DAYS);
+            } catch (Exception e) {
+                dirtyDays.add(date);
+                log.warn("写入销量排名统计失败：{}，{}", key, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 从redis读取其他节点的计数和重建结果，已重建的日期丢弃本节点的计数
+     */
+    public void refreshRemote() {
+        if (trackingSince == null) {
+            initTrackingSince();
+        }
+        String nodeId = getNodeId();
+        Map<LocalDate, SpaceSavingSketch> buckets = new HashMap<>();
+        Map<LocalDate, SpaceSavingSketch> rebuilt = new HashMap<>();
+        for (LocalDate date : retainedDays()) {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(KEY_PREFIX + date);
+            Map<String, Long> exact = (Map<String, Long>) entries.get(REBUILT_FIELD);
+            if (exact != null) {
+                rebuilt.put(date, SpaceSavingSketch.fromMap(Math.max(getCapacity(), exact.size()), exact));
+                localBuckets.remove(date);
+                dirtyDays.remove(date);
+                continue;
+            }
+            SpaceSavingSketch merged = null;
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                if (nodeId.equals(entry.getKey())) {
+                    continue;
+                }
+                if (merged == null) {
+                    merged = new SpaceSavingSketch(getCapacity());
+                }
+                merged.merge(SpaceSavingSketch.fromMap(getCapacity(), (Map<String, Long>) entry.getValue()));
+            }
+            if (merged != null) {
+                buckets.put(date, merged);
+            }
+        }
+        rebuiltBuckets = rebuilt;
+        remoteBuckets = buckets;
+    }
+
+    /**
+     * 按数据库重建保留天数内已结束日期的销量统计（一条按天分组的查询）
+     * 事件在宕机或写入redis之前丢失时内存统计会偏低，重建后各节点只使用重建结果
+     */
+    public void rebuild() {
+        LocalDate today = LocalDate.now();
+        LocalDate earliest = today.minusDays(getRetentionDays() - 1);
+        if (!earliest.isBefore(today)) {
+            return;
+        }
+
+        Map<LocalDate, HashMap<String, Long>> dailySales = new HashMap<>();
+        for (LocalDate date = earliest; date.isBefore(today); date = date.plusDays(1)) {
+            dailySales.put(date, new HashMap<>());
+        }
+        for (GoodsDailySalesDTO sales : orderMapper.getDailySales(earliest.atStartOfDay(), today.atStartOfDay(), Orders.COMPLETED)) {
+            dailySales.computeIfAbsent(sales.getStatDate(), date -> new HashMap<>())
+                    .merge(sales.getName(), sales.getNumber().longValue(), Long::sum);
+        }
+
+        for (Map.Entry<LocalDate, HashMap<String, Long>> entry : dailySales.entrySet()) {
+            String key = KEY_PREFIX + entry.getKey();
+            redisTemplate.opsForHash().put(key, REBUILT_FIELD, entry.getValue());
+            redisTemplate.expire(key, getRetentionDays() + 1, TimeUnit.DAYS);
+        }
+        log.info("按数据库重建销量排名统计：{}至{}", earliest, today.minusDays(1));
+        refreshRemote();
+    }
+
+    /**
+     * 停止前写入最新的计数
+     */
+    @PreDestroy
+    public void destroy() {
+        snapshot();
+    }
+
+    /**
+     * 记录第一个完整统计的日期：首次启动的当天只统计到部分订单，从第二天开始才是完整的
+     */
+    private void initTrackingSince() {
+        redisTemplate.opsForValue().setIfAbsent(SINCE_KEY, LocalDate.now().plusDays(1).toString());
+        trackingSince = LocalDate.parse((String) redisTemplate.opsForValue().get(SINCE_KEY));
+    }
+
+    /**
+     * 保留天数内的日期，开始统计之前的日期也可能已经重建
+     */
+    private List<LocalDate> retainedDays() {
+        LocalDate today = LocalDate.now();
+        LocalDate date = today.minusDays(getRetentionDays() - 1);
+        List<LocalDate> days = new ArrayList<>();
+        for (; !date.isAfter(today); date = date.plusDays(1)) {
+            days.add(date);
+        }
+        return days;
+    }
+
+    private SpaceSavingSketch getBucket(LocalDate date) {
+        return localBuckets.computeIfAbsent(date, key -> new SpaceSavingSketch(getCapacity()));
+    }
+
+    /**
+     * 集群节点id，未配置sky.cluster.node-id时每次启动都不同：
+     * 重启前写入的计数作为其他节点的计数参与合并，不会丢失，过期后自动删除
+     */
+    private String getNodeId() {
+        return clusterNode.getNodeId();
+    }
+
+    private int getCapacity() {
+        return reportProperties.getTopSales().getCapacity();
+    }
+
+    private int getRetentionDays() {
+        return reportProperties.getTopSales().getRetentionDays();
+    }
+}
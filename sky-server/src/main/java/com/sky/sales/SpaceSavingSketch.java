@@ -0,0 +1,135 @@
+package com.sky.sales;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving热点统计：最多保留capacity个计数器
+ * 计数器满时新元素替换计数最小的元素，并继承其计数作为误差上界，因此任何元素的计数都不会被低估
+ * 不同元素数不超过capacity时统计结果是精确的
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * 累加元素计数
+     * @param item
+     * @param count
+     */
+    public synchronized void add(String item, long count) {
+        add(item, count, 0);
+    }
+
+    /**
+     * 扣减已统计元素的计数（例如已完成的订单被取消），未被统计的元素忽略
+     * @param item
+     * @param count
+     */
+    public synchronized void subtract(String item, long count) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count = Math.max(0, counter.count - count);
+        }
+    }
+
+    /**
+     * 合并另一个统计结果（例如其他日期或其他节点的数据）
+     * @param other
+     */
+    public void merge(SpaceSavingSketch other) {
+        List<Map.Entry<String, Counter>> entries;
+        synchronized (other) {
+            entries = new ArrayList<>();
+            for (Map.Entry<String, Counter> entry : other.counters.entrySet()) {
+                entries.add(new HashMap.SimpleEntry<>(entry.getKey(), new Counter(entry.getValue().count, entry.getValue().error)));
+            }
+        }
+        synchronized (this) {
+            for (Map.Entry<String, Counter> entry : entries) {
+                add(entry.getKey(), entry.getValue().count, entry.getValue().error);
+            }
+        }
+    }
+
+    /**
+     * 计数最大的前n个元素
+     * @param n
+     * @return 元素 -> 计数，按计数降序
+     */
+    public synchronized LinkedHashMap<String, Long> top(int n) {
+        List<Map.Entry<String, Counter>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Counter> entry) -> entry.getValue().count).reversed());
+        LinkedHashMap<String, Long> top = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(n, entries.size()); i++) {
+            top.put(entries.get(i).getKey(), entries.get(i).getValue().count);
+        }
+        return top;
+    }
+
+    /**
+     * 导出全部计数，用于持久化
+     * @return
+     */
+    public synchronized HashMap<String, Long> toMap() {
+        HashMap<String, Long> map = new HashMap<>();
+        counters.forEach((item, counter) -> map.put(item, counter.count));
+        return map;
+    }
+
+    /**
+     * 根据持久化的计数恢复
+     * @param capacity
+     * @param map
+     * @return
+     */
+    public static SpaceSavingSketch fromMap(int capacity, Map<String, Long> map) {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        map.forEach(sketch::add);
+        return sketch;
+    }
+
+    private void add(String item, long count, long error) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += count;
+            counter.error += error;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(count, error));
+            return;
+        }
+
+        //替换计数最小的元素
+        String minItem = null;
+        Counter minCounter = null;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            if (minCounter == null || entry.getValue().count < minCounter.count) {
+                minItem = entry.getKey();
+                minCounter = entry.getValue();
+            }
+        }
+        counters.remove(minItem);
+        counters.put(item, new Counter(minCounter.count + count, minCounter.count + error));
+    }
+
+    private static class Counter {
+        private long count;
+        private long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
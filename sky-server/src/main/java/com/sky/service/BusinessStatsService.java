@@ -0,0 +1,46 @@
+package com.sky.service;
+
+import com.sky.entity.DailyBusinessStats;
+import com.sky.event.OrderStatusChangedEvent;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BusinessStatsService {
+
+    /**
+     * 按天获取营业数据，已结束的日期读取汇总表，只有今天（及以后）查询原始数据
+     * 只读取，不写入汇总表
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return 每天一条，按日期升序，没有数据的日期各项为0
+     */
+    List<DailyBusinessStats> getDailyStats(LocalDate begin, LocalDate end);
+
+    /**
+     * 按原始数据重新统计时间段内的汇总数据并覆盖写入
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含）
+     */
+    void reconcile(LocalDate begin, LocalDate end);
+
+    /**
+     * 补齐时间段内汇总表中缺失或未核对的日期
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含），必须早于今天
+     */
+    void backfill(LocalDate begin, LocalDate end);
+
+    /**
+     * 订单状态变更时增量更新汇总数据
+     * @param event
+     */
+    void onOrderStatusChanged(OrderStatusChangedEvent event);
+
+    /**
+     * 新用户注册时增量更新汇总数据
+     * @param createTime 注册时间
+     */
+    void recordNewUser(LocalDateTime createTime);
+}
@@ -0,0 +1,32 @@
+package com.sky.service;
+
+import com.sky.entity.Setmeal;
+import com.sky.vo.DishVO;
+import com.sky.vo.MenuSnapshotVO;
+
+import java.util.List;
+
+public interface MenuService {
+
+    /**
+     * 查询分类下起售中的菜品及口味（带缓存，与C端菜品列表接口共用缓存）
+     * @param categoryId
+     * @return
+     */
+    List<DishVO> listDishes(Long categoryId);
+
+    /**
+     * 查询分类下起售中的套餐（带缓存，与C端套餐列表接口共用缓存）
+     * @param categoryId
+     * @return
+     */
+    List<Setmeal> listSetmeals(Long categoryId);
+
+    /**
+     * 查询整个菜单的快照
+     * @param epoch 客户端已有菜单的纪元，与当前纪元不一致时返回全量数据
+     * @param since 客户端已有的菜单版本，为空时返回全量数据，否则只返回该版本之后变化的数据
+     * @return
+     */
+    MenuSnapshotVO getSnapshot(String epoch, Long since);
+}
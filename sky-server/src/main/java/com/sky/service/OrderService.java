@@ -1,6 +1,7 @@
 package com.sky.service;
 
 import com.sky.dto.*;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
@@ -39,6 +40,16 @@ public interface OrderService {
      */
     PageResult pageQuery4User(int page, int pageSize, Integer status);
 
+    /**
+     * 用户端订单游标分页查询
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param pageSize
+     * @param status
+     * @param withTotal 是否统计总记录数
+     * @return
+     */
+    CursorPageResult pageQuery4UserByCursor(String cursor, int pageSize, Integer status, boolean withTotal);
+
     /**
      * 查询订单详情
      * @param id
@@ -66,6 +77,13 @@ public interface OrderService {
      */
     PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 条件搜索订单（游标分页）
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 各个状态的订单数量统计
      * @return
@@ -0,0 +1,38 @@
+package com.sky.service;
+
+import com.sky.vo.ReportExportJobVO;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
+
+public interface ReportExportService {
+
+    /**
+     * 提交运营数据报表导出任务，立即返回任务信息
+     * @param begin 开始日期，为空时默认最近30天
+     * @param end 结束日期，为空时默认昨天
+     * @return
+     */
+    ReportExportJobVO submit(LocalDate begin, LocalDate end);
+
+    /**
+     * 查询导出任务进度
+     * @param id
+     * @return
+     */
+    ReportExportJobVO getJob(String id);
+
+    /**
+     * 下载导出文件
+     * @param id
+     * @param request
+     * @param response
+     */
+    void download(String id, HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * 清理已过期的导出任务及文件
+     */
+    void cleanExpired();
+}
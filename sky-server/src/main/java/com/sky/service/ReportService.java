@@ -7,7 +7,10 @@ import com.sky.vo.UserReportVO;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.function.IntConsumer;
 
 @Service
 public interface ReportService {
@@ -46,7 +49,19 @@ public interface ReportService {
 
     /**
      * 导出运营数据报表
+     * @param begin 开始日期（包含），为空时默认最近30天
+     * @param end 结束日期（包含），为空时默认昨天
      * @param response
      */
-    void exportBusinessData(HttpServletResponse response);
+    void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response);
+
+    /**
+     * 生成运营数据报表并写入输出流
+     * @param begin 开始日期（包含），为空时默认最近30天
+     * @param end 结束日期（包含），为空时默认昨天
+     * @param out 输出流，由调用方关闭
+     * @param progressListener 进度回调（0-100），可以为null
+     * @throws IOException
+     */
+    void writeBusinessData(LocalDate begin, LocalDate end, OutputStream out, IntConsumer progressListener) throws IOException;
 }
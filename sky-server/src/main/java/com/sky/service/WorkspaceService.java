@@ -4,6 +4,7 @@ import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
 import com.sky.vo.OrderOverViewVO;
 import com.sky.vo.SetmealOverViewVO;
+import com.sky.vo.WorkspaceSnapshotVO;
 import java.time.LocalDateTime;
 
 public interface WorkspaceService {
@@ -34,4 +35,10 @@ public interface WorkspaceService {
      */
     SetmealOverViewVO getSetmealOverView();
 
+    /**
+     * 查询工作台全部数据（今日运营数据、订单管理数据、菜品总览、套餐总览）
+     * @return
+     */
+    WorkspaceSnapshotVO getSnapshot();
+
 }
@@ -2,6 +2,7 @@ package com.sky.service.impl;
 
 import com.sky.context.BaseContext;
 import com.sky.entity.AddressBook;
+import com.sky.geo.AddressLocationResolver;
 import com.sky.mapper.AddressBookMapper;
 import com.sky.service.AddressBookService;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +16,8 @@ import java.util.List;
 public class AddressBookServiceImpl implements AddressBookService {
     @Autowired
     private AddressBookMapper addressBookMapper;
+    @Autowired
+    private AddressLocationResolver addressLocationResolver;
 
     /**
      * 条件查询
@@ -35,6 +38,9 @@ public class AddressBookServiceImpl implements AddressBookService {
         addressBook.setUserId(BaseContext.getCurrentId());
         addressBook.setIsDefault(0);
         addressBookMapper.insert(addressBook);
+
+        //异步解析地址坐标
+        addressLocationResolver.resolve(addressBook.getId());
     }
 
     /**
@@ -55,6 +61,11 @@ public class AddressBookServiceImpl implements AddressBookService {
      */
     public void update(AddressBook addressBook) {
         addressBookMapper.update(addressBook);
+
+        //详细地址修改后原坐标已清空，重新异步解析
+        if (addressBook.getDetail() != null) {
+            addressLocationResolver.resolve(addressBook.getId());
+        }
     }
 
     /**
@@ -0,0 +1,231 @@
+package com.sky.service.impl;
+
+import com.sky.dto.OrderDailyStatDTO;
+import com.sky.dto.UserDailyStatDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangedEvent;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Slf4j
+public class BusinessStatsServiceImpl implements BusinessStatsService {
+
+    //补齐汇总数据时每次统计的最多天数
+    private static final int BACKFILL_SEGMENT_DAYS = 31;
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 按天获取营业数据，已结束的日期读取汇总表，只有今天（及以后）查询原始数据
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return
+     */
+    public List<DailyBusinessStats> getDailyStats(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, DailyBusinessStats> statsMap = new HashMap<>();
+
+        //1.已结束的日期读取汇总表，汇总表中缺失或未核对的日期按原始数据临时统计
+        //  统计结果不写回：写回的原始数据与之后到达的异步增量会重复计算，缺失的日期由定时任务补齐
+        if (begin.isBefore(today)) {
+            LocalDate closedEnd = end.isBefore(today) ? end : today.minusDays(1);
+            for (DailyBusinessStats stats : dailyBusinessStatsMapper.getReconciledByDateRange(begin, closedEnd)) {
+                statsMap.put(stats.getStatDate(), stats);
+            }
+
+            List<LocalDate> missingDates = missingDates(statsMap, begin, closedEnd);
+            if (!missingDates.isEmpty()) {
+                for (DailyBusinessStats stats : computeFromRaw(missingDates.get(0), missingDates.get(missingDates.size() - 1))) {
+                    statsMap.putIfAbsent(stats.getStatDate(), stats);
+                }
+                log.info("汇总表缺少每日营业数据，按原始数据统计：{}至{}，共{}天", missingDates.get(0),
+                        missingDates.get(missingDates.size() - 1), missingDates.size());
+            }
+        }
+
+        //2.今天的数据仍在变化，直接查询原始数据
+        LocalDate openBegin = begin.isBefore(today) ? today : begin;
+        if (!openBegin.isAfter(end)) {
+            for (DailyBusinessStats stats : computeFromRaw(openBegin, end)) {
+                statsMap.put(stats.getStatDate(), stats);
+            }
+        }
+
+        List<DailyBusinessStats> statsList = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            statsList.add(statsMap.get(date));
+        }
+        return statsList;
+    }
+
+    /**
+     * 按原始数据重新统计时间段内的汇总数据并覆盖写入
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含）
+     */
+    public void reconcile(LocalDate begin, LocalDate end) {
+        dailyBusinessStatsMapper.upsertBatch(computeFromRaw(begin, end));
+    }
+
+    /**
+     * 补齐时间段内汇总表中缺失或未核对的日期，已核对的日期不再重新统计
+     * 按连续的缺失日期分段统计，每段不超过一个月，避免单条分组查询扫描过多数据
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含），必须早于今天
+     */
+    public void backfill(LocalDate begin, LocalDate end) {
+        Map<LocalDate, DailyBusinessStats> statsMap = new HashMap<>();
+        for (DailyBusinessStats stats : dailyBusinessStatsMapper.getReconciledByDateRange(begin, end)) {
+            statsMap.put(stats.getStatDate(), stats);
+        }
+        List<LocalDate> missingDates = missingDates(statsMap, begin, end);
+
+        int index = 0;
+        while (index < missingDates.size()) {
+            LocalDate segmentBegin = missingDates.get(index);
+            LocalDate segmentEnd = segmentBegin;
+            index++;
+            while (index < missingDates.size() && missingDates.get(index).equals(segmentEnd.plusDays(1))
+                    && segmentEnd.plusDays(1).isBefore(segmentBegin.plusDays(BACKFILL_SEGMENT_DAYS))) {
+                segmentEnd = missingDates.get(index);
+                index++;
+            }
+            dailyBusinessStatsMapper.upsertBatch(computeFromRaw(segmentBegin, segmentEnd));
+        }
+        if (!missingDates.isEmpty()) {
+            log.info("补齐每日营业数据汇总：{}至{}，共{}天", begin, end, missingDates.size());
+        }
+    }
+
+    /**
+     * 订单状态变更时增量更新下单日期的汇总数据，在事务提交后异步执行
+     * 更新失败只记录日志，由定时核对任务修正
+     * @param event
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Integer fromStatus = event.getFromStatus();
+        Integer toStatus = event.getToStatus();
+
+        DailyBusinessStats delta = DailyBusinessStats.empty(null);
+        boolean changed = false;
+        int validDelta = 0;
+        //新订单
+        if (fromStatus == null) {
+            delta.setTotalOrderCount(1);
+            changed = true;
+        }
+        //订单完成计入有效订单和营业额，已完成的订单被取消时扣回
+        if (Orders.COMPLETED.equals(toStatus) && !Orders.COMPLETED.equals(fromStatus)) {
+            validDelta = 1;
+        } else if (Orders.COMPLETED.equals(fromStatus) && !Orders.COMPLETED.equals(toStatus)) {
+            validDelta = -1;
+        }
+        if (Orders.CANCELLED.equals(toStatus) && !Orders.CANCELLED.equals(fromStatus)) {
+            delta.setCancelledOrderCount(1);
+            changed = true;
+        }
+        if (validDelta == 0 && !changed) {
+            return;
+        }
+
+        try {
+            LocalDateTime orderTime = event.getOrderTime();
+            BigDecimal amount = event.getAmount();
+            if (orderTime == null || amount == null) {
+                Orders orders = event.getOrderId() != null
+                        ? orderMapper.getById(event.getOrderId()) : orderMapper.getByNumber(event.getNumber());
+                orderTime = orders.getOrderTime();
+                amount = orders.getAmount();
+            }
+            delta.setStatDate(orderTime.toLocalDate());
+            delta.setValidOrderCount(validDelta);
+            delta.setTurnover(amount.multiply(BigDecimal.valueOf(validDelta)));
+            dailyBusinessStatsMapper.increment(delta);
+        } catch (Exception e) {
+            log.warn("增量更新每日营业数据失败：{}，{}", event, e.getMessage());
+        }
+    }
+
+    /**
+     * 新用户注册时增量更新汇总数据，异步执行
+     * @param createTime 注册时间
+     */
+    @Async
+    public void recordNewUser(LocalDateTime createTime) {
+        DailyBusinessStats delta = DailyBusinessStats.empty(createTime.toLocalDate());
+        delta.setNewUsers(1);
+        try {
+            dailyBusinessStatsMapper.increment(delta);
+        } catch (Exception e) {
+            log.warn("增量更新每日新增用户失败：{}，{}", createTime, e.getMessage());
+        }
+    }
+
+    private static List<LocalDate> missingDates(Map<LocalDate, DailyBusinessStats> statsMap, LocalDate begin, LocalDate end) {
+        List<LocalDate> missingDates = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            if (!statsMap.containsKey(date)) {
+                missingDates.add(date);
+            }
+        }
+        return missingDates;
+    }
+
+    /**
+     * 按原始订单表和用户表分组统计时间段内每天的数据（两条分组查询）
+     * @param begin 开始日期（包含）
+     * @param end 结束日期（包含）
+     * @return 每天一条，没有数据的日期各项为0
+     */
+    private List<DailyBusinessStats> computeFromRaw(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end.plusDays(1), LocalTime.MIN);
+
+        Map<LocalDate, DailyBusinessStats> statsMap = new HashMap<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            statsMap.put(date, DailyBusinessStats.empty(date));
+        }
+
+        for (OrderDailyStatDTO orderStat : orderMapper.getDailyStats(beginTime, endTime, Orders.COMPLETED, Orders.CANCELLED)) {
+            DailyBusinessStats stats = statsMap.get(orderStat.getStatDate());
+            stats.setTotalOrderCount(orderStat.getOrderCount());
+            stats.setValidOrderCount(orderStat.getValidOrderCount());
+            stats.setCancelledOrderCount(orderStat.getCancelledOrderCount());
+            stats.setTurnover(orderStat.getTurnover() == null ? BigDecimal.ZERO : BigDecimal.valueOf(orderStat.getTurnover()));
+        }
+        for (UserDailyStatDTO userStat : userMapper.getDailyNewUsers(beginTime, endTime)) {
+            statsMap.get(userStat.getStatDate()).setNewUsers(userStat.getNewUsers());
+        }
+
+        List<DailyBusinessStats> statsList = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            statsList.add(statsMap.get(date));
+        }
+        return statsList;
+    }
+}
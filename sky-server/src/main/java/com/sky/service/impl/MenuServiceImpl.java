@@ -0,0 +1,295 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.constant.CacheConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.event.CacheInvalidatedEvent;
+import com.sky.mapper.CategoryMapper;
+import com.sky.properties.CacheProperties;
+import com.sky.result.Result;
+import com.sky.service.DishService;
+import com.sky.service.MenuService;
+import com.sky.service.SetmealService;
+import com.sky.vo.DishVO;
+import com.sky.vo.MenuSnapshotVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * C端菜单
+ * 菜单快照在本节点内存中缓存，菜品/套餐缓存失效（任一节点）、redis中的菜单版本变化或超过最长缓存时间后重新生成；
+ * 生成时计算每个分类、菜品、套餐的内容hash，与redis中记录的hash比较，有变化时菜单版本加1，
+ * 并记录变化的条目在哪个版本发生变化（删除的条目记为"-"），增量查询据此返回指定版本之后变化的数据
+ * 菜单纪元在版本号首次生成时写入，redis数据丢失后版本号从头开始，纪元随之变化，
+ * 客户端持有的旧纪元版本不再有效，返回全量数据
+ */
+@Service
+@Slf4j
+public class MenuServiceImpl implements MenuService {
+
+    private static final String VERSION_KEY = "menu:version";
+    private static final String ITEMS_KEY = "menu:items";
+    private static final String EPOCH_KEY = "menu:epoch";
+
+    //条目key前缀：分类、菜品、套餐
+    private static final String CATEGORY_PREFIX = "c:";
+    private static final String DISH_PREFIX = "d:";
+    private static final String SETMEAL_PREFIX = "s:";
+
+    //条目记录格式：hash|版本，删除的条目hash为"-"
+    private static final String REMOVED = "-";
+    private static final String SEPARATOR = "|";
+
+    //分类类型：1菜品分类 2套餐分类
+    private static final Integer DISH_CATEGORY = 1;
+    private static final Integer SETMEAL_CATEGORY = 2;
+
+    //ARGV[1]为纪元不存在时写入的新纪元，之后为 条目key,hash 对，比较后有变化时版本号加1并更新变化的条目，
+    //返回当前版本号和纪元
+    private static final String SYNC_SCRIPT =
+            "redis.call('SET', KEYS[3], ARGV[1], 'NX') " +
+            "local epoch = redis.call('GET', KEYS[3]) " +
+            "local stored = {} " +
+            "local entries = redis.call('HGETALL', KEYS[2]) " +
+            "for i = 1, #entries, 2 do stored[entries[i]] = entries[i + 1] end " +
+            "local changed = {} " +
+            "local seen = {} " +
+            "for i = 2, #ARGV, 2 do " +
+            "  seen[ARGV[i]] = true " +
+            "  local s = stored[ARGV[i]] " +
+            "  if s == nil or string.sub(s, 1, #ARGV[i + 1] + 1) ~= ARGV[i + 1] .. '|' then " +
+            "    table.insert(changed, ARGV[i]) table.insert(changed, ARGV[i + 1]) " +
+            "  end " +
+            "end " +
+            "for k, s in pairs(stored) do " +
+            "  if not seen[k] and string.sub(s, 1, 2) ~= '-|' then table.insert(changed, k) table.insert(changed, '-') end " +
+            "end " +
+            "if #changed == 0 then return {redis.call('GET', KEYS[1]) or '0', epoch} end " +
+            "local version = redis.call('INCR', KEYS[1]) " +
+            "for i = 1, #changed, 2 do redis.call('HSET', KEYS[2], changed[i], changed[i + 1] .. '|' .. version) end " +
+            "return {tostring(version), epoch}";
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    private final DefaultRedisScript<List> syncScript = new DefaultRedisScript<>(SYNC_SCRIPT, List.class);
+
+    private volatile MenuSnapshot snapshot;
+    private volatile boolean dirty = true;
+
+    /**
+     * 查询分类下起售中的菜品及口味
+     * @param categoryId
+     * @return
+     */
+    public List<DishVO> listDishes(Long categoryId) {
+        Dish dish = new Dish();
+        dish.setCategoryId(categoryId);
+        dish.setStatus(StatusConstant.ENABLE);
+        Cache cache = cacheManager.getCache(CacheConstant.DISH_CACHE);
+        return cache.get(String.valueOf(categoryId), () -> dishService.listWithFlavor(dish));
+    }
+
+    /**
+     * 查询分类下起售中的套餐，缓存的值与C端套餐列表接口（@Cacheable）一致
+     * @param categoryId
+     * @return
+     */
+    public List<Setmeal> listSetmeals(Long categoryId) {
+        Setmeal setmeal = new Setmeal();
+        setmeal.setCategoryId(categoryId);
+        setmeal.setStatus(StatusConstant.ENABLE);
+        Cache cache = cacheManager.getCache(CacheConstant.SETMEAL_CACHE);
+        Result<List<Setmeal>> result = cache.get(categoryId, () -> Result.success(setmealService.list(setmeal)));
+        return result.getData();
+    }
+
+    /**
+     * 菜品、套餐缓存失效后重新生成快照
+     * @param event
+     */
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (CacheConstant.DISH_CACHE.equals(event.getCacheName()) || CacheConstant.SETMEAL_CACHE.equals(event.getCacheName())) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * 查询整个菜单的快照
+     * 纪元不一致或客户端版本大于当前版本（redis数据丢失后版本号重新开始）时返回全量数据
+     * @param epoch
+     * @param since
+     * @return
+     */
+    public MenuSnapshotVO getSnapshot(String epoch, Long since) {
+        MenuSnapshot current = currentSnapshot();
+        if (since == null || since <= 0 || since > current.version || !current.epoch.equals(epoch)) {
+            return MenuSnapshotVO.builder()
+                    .epoch(current.epoch)
+                    .version(current.version)
+                    .full(true)
+                    .categories(current.categories)
+                    .dishes(current.dishes)
+                    .setmeals(current.setmeals)
+                    .build();
+        }
+
+        return MenuSnapshotVO.builder()
+                .epoch(current.epoch)
+                .version(current.version)
+                .full(false)
+                .categories(changedSince(current.categories, Category::getId, CATEGORY_PREFIX, current, since))
+                .dishes(changedSince(current.dishes, DishVO::getId, DISH_PREFIX, current, since))
+                .setmeals(changedSince(current.setmeals, Setmeal::getId, SETMEAL_PREFIX, current, since))
+                .removedCategoryIds(removedSince(CATEGORY_PREFIX, current, since))
+                .removedDishIds(removedSince(DISH_PREFIX, current, since))
+                .removedSetmealIds(removedSince(SETMEAL_PREFIX, current, since))
+                .build();
+    }
+
+    private <T> List<T> changedSince(List<T> items, Function<T, Long> idGetter, String prefix,
+                                     MenuSnapshot current, long since) {
+        return items.stream()
+                .filter(item -> current.itemVersions.getOrDefault(prefix + idGetter.apply(item), Long.MAX_VALUE) > since)
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> removedSince(String prefix, MenuSnapshot current, long since) {
+        return current.removedVersions.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix) && entry.getValue() > since)
+                .map(entry -> Long.valueOf(entry.getKey().substring(prefix.length())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取当前快照，需要时重新生成，同一时刻只有一个线程生成
+     */
+    private MenuSnapshot currentSnapshot() {
+        MenuSnapshot current = snapshot;
+        if (isValid(current)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (isValid(current)) {
+                return current;
+            }
+            current = build();
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private boolean isValid(MenuSnapshot current) {
+        if (current == null || dirty
+                || System.currentTimeMillis() - current.builtAt > cacheProperties.getMenuSnapshotTtl().toMillis()) {
+            return false;
+        }
+        //其他节点生成快照时发现菜单变化，或redis数据丢失
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(VERSION_KEY, EPOCH_KEY));
+        return values != null && String.valueOf(current.version).equals(values.get(0))
+                && current.epoch.equals(values.get(1));
+    }
+
+    private MenuSnapshot build() {
+        long start = System.currentTimeMillis();
+        //生成期间缓存再次失效时，下次查询重新生成
+        dirty = false;
+
+        List<Category> categories = categoryMapper.list(null);
+        List<DishVO> dishes = new ArrayList<>();
+        List<Setmeal> setmeals = new ArrayList<>();
+        for (Category category : categories) {
+            if (DISH_CATEGORY.equals(category.getType())) {
+                dishes.addAll(listDishes(category.getId()));
+            } else if (SETMEAL_CATEGORY.equals(category.getType())) {
+                setmeals.addAll(listSetmeals(category.getId()));
+            }
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add(Long.toString(System.currentTimeMillis(), 36));
+        categories.forEach(category -> addHash(args, CATEGORY_PREFIX + category.getId(), category));
+        dishes.forEach(dish -> addHash(args, DISH_PREFIX + dish.getId(), dish));
+        setmeals.forEach(setmeal -> addHash(args, SETMEAL_PREFIX + setmeal.getId(), setmeal));
+        List<?> result = stringRedisTemplate.execute(syncScript, Arrays.asList(VERSION_KEY, ITEMS_KEY, EPOCH_KEY), args.toArray());
+        Long version = Long.valueOf(String.valueOf(result.get(0)));
+        String epoch = String.valueOf(result.get(1));
+
+        Map<String, Long> itemVersions = new HashMap<>();
+        Map<String, Long> removedVersions = new HashMap<>();
+        stringRedisTemplate.opsForHash().entries(ITEMS_KEY).forEach((key, value) -> {
+            String record = (String) value;
+            int index = record.lastIndexOf(SEPARATOR);
+            Long itemVersion = Long.valueOf(record.substring(index + 1));
+            if (REMOVED.equals(record.substring(0, index))) {
+                removedVersions.put((String) key, itemVersion);
+            } else {
+                itemVersions.put((String) key, itemVersion);
+            }
+        });
+
+        log.info("生成菜单快照：纪元{}，版本{}，分类{}个，菜品{}个，套餐{}个，耗时{}ms", epoch, version, categories.size(),
+                dishes.size(), setmeals.size(), System.currentTimeMillis() - start);
+        return new MenuSnapshot(epoch, version, categories, dishes, setmeals, itemVersions, removedVersions, start);
+    }
+
+    private static void addHash(List<String> args, String key, Object item) {
+        args.add(key);
+        args.add(DigestUtils.md5DigestAsHex(JSON.toJSONString(item).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class MenuSnapshot {
+        private final String epoch;
+        private final Long version;
+        private final List<Category> categories;
+        private final List<DishVO> dishes;
+        private final List<Setmeal> setmeals;
+        //条目key -> 最后一次变化的版本
+        private final Map<String, Long> itemVersions;
+        private final Map<String, Long> removedVersions;
+        private final long builtAt;
+
+        MenuSnapshot(String epoch, Long version, List<Category> categories, List<DishVO> dishes, List<Setmeal> setmeals,
+                     Map<String, Long> itemVersions, Map<String, Long> removedVersions, long builtAt) {
+            this.epoch = epoch;
+            this.version = version;
+            this.categories = categories;
+            this.dishes = dishes;
+            this.setmeals = setmeals;
+            this.itemVersions = itemVersions;
+            this.removedVersions = removedVersions;
+            this.builtAt = builtAt;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.sky.service.impl;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
@@ -10,13 +9,22 @@ import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.*;
 import com.sky.entity.*;
+import com.sky.event.OrderStatusChangedEvent;
 import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
+import com.sky.geo.AddressLocationResolver;
+import com.sky.geo.Coordinate;
+import com.sky.geo.DeliveryRangeChecker;
+import com.sky.geo.GeoService;
 import com.sky.mapper.*;
+import com.sky.order.OrderStateMachine;
+import com.sky.order.OrderStatusCounter;
+import com.sky.order.OrderTransition;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.service.OrderService;
-import com.sky.utils.HttpClientUtil;
+import com.sky.utils.OrderNumberGenerator;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
@@ -26,13 +34,15 @@ import com.sky.websocket.WebSocketServer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +52,10 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    //游标分页未指定每页记录数时的默认值，以及每页最大记录数
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
@@ -56,12 +70,21 @@ public class OrderServiceImpl implements OrderService {
     private WeChatPayUtil weChatPayUtil;
     @Autowired
     private WebSocketServer webSocketServer;
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
 
-    @Value("${sky.shop.address}")
-    private String shopAddress;
-
-    @Value("${sky.baidu.ak}")
-    private String ak;
+    @Autowired
+    private GeoService geoService;
+    @Autowired
+    private DeliveryRangeChecker deliveryRangeChecker;
+    @Autowired
+    private AddressLocationResolver addressLocationResolver;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
 
     /**
      * 用户下单
@@ -77,7 +100,7 @@ public class OrderServiceImpl implements OrderService {
         };
 
         //检查是否超出配送范围
-        checkOutOfRange(addressBook.getCityName()+addressBook.getDistrictName()+addressBook.getDetail());
+        checkOutOfRange(addressBook);
 
         ShoppingCart shoppingCart = new ShoppingCart();
         shoppingCart.setUserId(BaseContext.getCurrentId());
@@ -92,12 +115,19 @@ public class OrderServiceImpl implements OrderService {
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
         orders.setStatus(Orders.PENDING_PAYMENT);
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        orders.setNumber(orderNumberGenerator.nextNumber());
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
         orders.setUserId(BaseContext.getCurrentId());
 
         orderMapper.insert(orders);
+        eventPublisher.publishEvent(OrderStatusChangedEvent.builder()
+                .orderId(orders.getId())
+                .number(orders.getNumber())
+                .toStatus(Orders.PENDING_PAYMENT)
+                .orderTime(orders.getOrderTime())
+                .amount(orders.getAmount())
+                .build());
 
         //3.向订单明细表插入n（n>=1)条数据
         ArrayList<OrderDetail> orderDetailList = new ArrayList<>();
@@ -151,9 +181,8 @@ public class OrderServiceImpl implements OrderService {
         OrderPaymentVO vo = jsonObject.toJavaObject(OrderPaymentVO.class);
         vo.setPackageStr(jsonObject.getString("package"));
 
-        //为替代微信支付成功后的数据库订单状态更新，多定义一个方法进行修改
+        //为替代微信支付成功后的数据库订单状态更新，直接将订单变更为待接单
         Integer OrderPaidStatus = Orders.PAID; //支付状态，已支付
-        Integer OrderStatus = Orders.TO_BE_CONFIRMED;  //订单状态，待接单
 
         //发现没有将支付时间 check_out属性赋值，所以在这里更新
         LocalDateTime check_out_time = LocalDateTime.now();
@@ -161,8 +190,17 @@ public class OrderServiceImpl implements OrderService {
         //获取订单号码
         String orderNumber = ordersPaymentDTO.getOrderNumber();
 
-        log.info("调用updateStatus，用于替换微信支付更新数据库状态的问题");
-        orderMapper.updateStatus(OrderStatus, OrderPaidStatus, check_out_time, orderNumber);
+        //先查询订单，事件中带上订单id、下单时间和金额，监听方（如超时取消队列）据此处理
+        Orders ordersDB = orderMapper.getByNumber(orderNumber);
+        if (ordersDB == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+
+        log.info("通过状态机更新支付状态，用于替换微信支付更新数据库状态的问题");
+        orderStateMachine.fire(OrderTransition.PAY, ordersDB, Orders.builder()
+                .payStatus(OrderPaidStatus)
+                .checkoutTime(check_out_time)
+                .build());
 
         return vo;
     }
@@ -177,15 +215,19 @@ public class OrderServiceImpl implements OrderService {
         // 根据订单号查询订单
         Orders ordersDB = orderMapper.getByNumber(outTradeNo);
 
-        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
+        // 支付回调可能重复通知，订单已不是待付款状态时直接忽略
+        if (ordersDB == null || !OrderTransition.PAY.canFire(ordersDB.getStatus())) {
+            log.info("忽略重复的支付成功通知：{}", outTradeNo);
+            return;
+        }
+
+        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间（只有待付款的订单可以更新）
         Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
                 .payStatus(Orders.PAID)
                 .checkoutTime(LocalDateTime.now())
                 .build();
 
-        orderMapper.update(orders);
+        orderStateMachine.fire(OrderTransition.PAY, ordersDB, orders);
 
         //websocket发送来单提醒
         Map map= new HashMap();
@@ -220,15 +262,13 @@ public class OrderServiceImpl implements OrderService {
 
         // 查询出订单明细，并封装入OrderVO进行响应
         if (page != null && page.getTotal() > 0) {
-            for (Orders orders : page) {
-                Long orderId = orders.getId();// 订单id
-
-                // 查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orderId);
+            // 一次查询出当前页所有订单的明细
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(page);
 
+            for (Orders orders : page) {
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                orderVO.setOrderDetailList(orderDetails);
+                orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
 
                 list.add(orderVO);
             }
@@ -236,6 +276,38 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), list);
     }
 
+    /**
+     * 用户端订单游标分页查询
+     *
+     * @param cursor
+     * @param pageSize
+     * @param status
+     * @param withTotal
+     * @return
+     */
+    public CursorPageResult pageQuery4UserByCursor(String cursor, int pageSize, Integer status, boolean withTotal) {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setUserId(BaseContext.getCurrentId());
+        ordersPageQueryDTO.setStatus(status);
+        ordersPageQueryDTO.setCursor(cursor);
+        ordersPageQueryDTO.setPageSize(pageSize);
+        ordersPageQueryDTO.setWithTotal(withTotal);
+
+        List<Orders> ordersList = queryByCursor(ordersPageQueryDTO);
+        String nextCursor = trimToPage(ordersList, ordersPageQueryDTO.getPageSize());
+
+        // 查询出订单明细，并封装入OrderVO进行响应
+        List<OrderVO> list = new ArrayList<>();
+        Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+        for (Orders orders : ordersList) {
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(orders, orderVO);
+            orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
+            list.add(orderVO);
+        }
+        return new CursorPageResult(countIfRequired(ordersPageQueryDTO), list, nextCursor);
+    }
+
     /**
      * 查询订单详情
      *
@@ -262,6 +334,7 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void userCancelById(Long id) throws Exception {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getById(id);
@@ -271,32 +344,27 @@ public class OrderServiceImpl implements OrderService {
             throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
         }
 
-        //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
-        if (ordersDB.getStatus() > 2) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        Orders orders = new Orders();
+        // 订单处于待接单状态下取消，需要进行退款
+        boolean refund = ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED);
+        if (refund) {
+            //支付状态修改为 退款
+            orders.setPayStatus(Orders.REFUND);
         }
 
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
+        // 更新订单状态、取消原因、取消时间（只有待付款、待接单的订单可以取消，并发取消时只有一个成功）
+        orders.setCancelReason("用户取消");
+        orders.setCancelTime(LocalDateTime.now());
+        orderStateMachine.fire(OrderTransition.USER_CANCEL, ordersDB, orders);
 
-        // 订单处于待接单状态下取消，需要进行退款
-        if (ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
-            //调用微信支付退款接口
+        if (refund) {
+            //调用微信支付退款接口，退款失败时回滚订单状态
             weChatPayUtil.refund(
                     ordersDB.getNumber(), //商户订单号
                     ordersDB.getNumber(), //商户退款单号
                     new BigDecimal(0.01),//退款金额，单位 元
                     new BigDecimal(0.01));//原订单金额
-
-            //支付状态修改为 退款
-            orders.setPayStatus(Orders.REFUND);
         }
-
-        // 更新订单状态、取消原因、取消时间
-        orders.setStatus(Orders.CANCELLED);
-        orders.setCancelReason("用户取消");
-        orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
     }
 
     /**
@@ -339,22 +407,101 @@ public class OrderServiceImpl implements OrderService {
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
 
         // 部分订单状态，需要额外返回订单菜品信息，将Orders转化为OrderVO
-        List<OrderVO> orderVOList = getOrderVOList(page);
+        List<OrderVO> orderVOList = getOrderVOList(page.getResult());
 
         return new PageResult(page.getTotal(), orderVOList);
     }
 
-    private List<OrderVO> getOrderVOList(Page<Orders> page) {
+    /**
+     * 订单搜索（游标分页）
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    public CursorPageResult conditionSearchByCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        List<Orders> ordersList = queryByCursor(ordersPageQueryDTO);
+        String nextCursor = trimToPage(ordersList, ordersPageQueryDTO.getPageSize());
+
+        List<OrderVO> orderVOList = getOrderVOList(ordersList);
+
+        return new CursorPageResult(countIfRequired(ordersPageQueryDTO), orderVOList, nextCursor);
+    }
+
+    /**
+     * 按游标查询订单，多查询一条用于判断是否存在下一页；每页记录数超过上限时按上限查询
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    private List<Orders> queryByCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        if (ordersPageQueryDTO.getPageSize() <= 0) {
+            ordersPageQueryDTO.setPageSize(DEFAULT_PAGE_SIZE);
+        } else if (ordersPageQueryDTO.getPageSize() > MAX_PAGE_SIZE) {
+            ordersPageQueryDTO.setPageSize(MAX_PAGE_SIZE);
+        }
+
+        LocalDateTime cursorTime = null;
+        Long cursorId = null;
+        String cursor = ordersPageQueryDTO.getCursor();
+        if (cursor != null && !cursor.isEmpty()) {
+            // 游标格式：Base64(下单时间_订单id)
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('_');
+                cursorTime = LocalDateTime.parse(decoded.substring(0, separator));
+                cursorId = Long.valueOf(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new OrderBusinessException(MessageConstant.PAGE_CURSOR_INVALID);
+            }
+        }
+
+        return orderMapper.pageQueryByCursor(ordersPageQueryDTO, cursorTime, cursorId, ordersPageQueryDTO.getPageSize() + 1);
+    }
+
+    /**
+     * 将查询结果截取为一页，并生成下一页游标
+     *
+     * @param ordersList
+     * @param pageSize
+     * @return 下一页游标，没有下一页时返回null
+     */
+    private String trimToPage(List<Orders> ordersList, int pageSize) {
+        if (ordersList.size() <= pageSize) {
+            return null;
+        }
+        ordersList.subList(pageSize, ordersList.size()).clear();
+
+        Orders last = ordersList.get(pageSize - 1);
+        String cursor = last.getOrderTime() + "_" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 游标分页按需统计总记录数
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    private long countIfRequired(OrdersPageQueryDTO ordersPageQueryDTO) {
+        if (Boolean.TRUE.equals(ordersPageQueryDTO.getWithTotal())) {
+            return orderMapper.countByQuery(ordersPageQueryDTO);
+        }
+        return CursorPageResult.TOTAL_UNKNOWN;
+    }
+
+    private List<OrderVO> getOrderVOList(List<Orders> ordersList) {
         // 需要返回订单菜品信息，自定义OrderVO响应结果
         List<OrderVO> orderVOList = new ArrayList<>();
 
-        List<Orders> ordersList = page.getResult();
         if (!CollectionUtils.isEmpty(ordersList)) {
+            // 一次查询出当前页所有订单的明细
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+
             for (Orders orders : ordersList) {
                 // 将共同字段复制到OrderVO
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                String orderDishes = getOrderDishesStr(orders);
+                String orderDishes = getOrderDishesStr(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
 
                 // 将订单菜品信息封装到orderVO中，并添加到orderVOList
                 orderVO.setOrderDishes(orderDishes);
@@ -365,15 +512,27 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 根据订单id获取菜品信息字符串
+     * 批量查询订单明细，并按订单id分组
      *
-     * @param orders
+     * @param ordersList
      * @return
      */
-    private String getOrderDishesStr(Orders orders) {
-        // 查询订单菜品详情信息（订单中的菜品和数量）
-        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(orders.getId());
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList) {
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        if (orderIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return orderDetailMapper.getByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
 
+    /**
+     * 将订单明细拼接为菜品信息字符串
+     *
+     * @param orderDetailList
+     * @return
+     */
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
         // 将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
         List<String> orderDishList = orderDetailList.stream().map(x -> {
             String orderDish = x.getName() + "*" + x.getNumber() + ";";
@@ -390,10 +549,12 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public OrderStatisticsVO statistics() {
-        // 根据状态，分别查询出待接单、待派送、派送中的订单数量
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        // 从计数器中读取待接单、待派送、派送中的订单数量
+        Map<Integer, Integer> counts = orderStatusCounter.getCounts(
+                Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS);
+        Integer toBeConfirmed = counts.get(Orders.TO_BE_CONFIRMED);
+        Integer confirmed = counts.get(Orders.CONFIRMED);
+        Integer deliveryInProgress = counts.get(Orders.DELIVERY_IN_PROGRESS);
 
         // 将查询出的数据封装到orderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -409,12 +570,12 @@ public class OrderServiceImpl implements OrderService {
      * @param ordersConfirmDTO
      */
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
+        // 只有待接单的订单可以接单
         Orders orders = Orders.builder()
                 .id(ordersConfirmDTO.getId())
-                .status(Orders.CONFIRMED)
                 .build();
 
-        orderMapper.update(orders);
+        orderStateMachine.fire(OrderTransition.CONFIRM, orders);
     }
 
     /**
@@ -422,19 +583,21 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param ordersRejectionDTO
      */
+    @Transactional
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) throws Exception {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getById(ordersRejectionDTO.getId());
 
-        // 订单只有存在且状态为2（待接单）才可以拒单
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
+        // 拒单需要退款，根据订单id更新订单状态、拒单原因、取消时间（订单只有存在且状态为2（待接单）才可以拒单）
+        Orders orders = new Orders();
+        orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
+        orders.setCancelTime(LocalDateTime.now());
+        orderStateMachine.fire(OrderTransition.REJECT, ordersDB, orders);
 
         //支付状态
         Integer payStatus = ordersDB.getPayStatus();
         if (payStatus == Orders.PAID) {
-            //用户已支付，需要退款
+            //用户已支付，需要退款，退款失败时回滚订单状态
             String refund = weChatPayUtil.refund(
                     ordersDB.getNumber(),
                     ordersDB.getNumber(),
@@ -442,15 +605,6 @@ public class OrderServiceImpl implements OrderService {
                     new BigDecimal(0.01));
             log.info("申请退款：{}", refund);
         }
-
-        // 拒单需要退款，根据订单id更新订单状态、拒单原因、取消时间
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        orders.setStatus(Orders.CANCELLED);
-        orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
-        orders.setCancelTime(LocalDateTime.now());
-
-        orderMapper.update(orders);
     }
 
     /**
@@ -458,14 +612,21 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param ordersCancelDTO
      */
+    @Transactional
     public void cancel(OrdersCancelDTO ordersCancelDTO) throws Exception {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getById(ordersCancelDTO.getId());
 
+        // 管理端取消订单需要退款，根据订单id更新订单状态、取消原因、取消时间（已取消的订单不能重复取消）
+        Orders orders = new Orders();
+        orders.setCancelReason(ordersCancelDTO.getCancelReason());
+        orders.setCancelTime(LocalDateTime.now());
+        orderStateMachine.fire(OrderTransition.ADMIN_CANCEL, ordersDB, orders);
+
         //支付状态
         Integer payStatus = ordersDB.getPayStatus();
         if (payStatus == 1) {
-            //用户已支付，需要退款
+            //用户已支付，需要退款，退款失败时回滚订单状态
             String refund = weChatPayUtil.refund(
                     ordersDB.getNumber(),
                     ordersDB.getNumber(),
@@ -473,14 +634,6 @@ public class OrderServiceImpl implements OrderService {
                     new BigDecimal(0.01));
             log.info("申请退款：{}", refund);
         }
-
-        // 管理端取消订单需要退款，根据订单id更新订单状态、取消原因、取消时间
-        Orders orders = new Orders();
-        orders.setId(ordersCancelDTO.getId());
-        orders.setStatus(Orders.CANCELLED);
-        orders.setCancelReason(ordersCancelDTO.getCancelReason());
-        orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
     }
 
     /**
@@ -489,20 +642,10 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void delivery(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在，并且状态为3
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.CONFIRMED)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为派送中
-        orders.setStatus(Orders.DELIVERY_IN_PROGRESS);
-
-        orderMapper.update(orders);
+        orders.setId(id);
+        // 更新订单状态,状态转为派送中（订单存在并且状态为3才能更新成功）
+        orderStateMachine.fire(OrderTransition.DELIVER, orders);
     }
 
     /**
@@ -511,21 +654,11 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void complete(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在，并且状态为4
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为完成
-        orders.setStatus(Orders.COMPLETED);
+        orders.setId(id);
+        // 更新订单状态,状态转为完成（订单存在并且状态为4才能更新成功）
         orders.setDeliveryTime(LocalDateTime.now());
-
-        orderMapper.update(orders);
+        orderStateMachine.fire(OrderTransition.COMPLETE, orders);
     }
 
     /**
@@ -551,66 +684,30 @@ public class OrderServiceImpl implements OrderService {
 
     /**
      * 检查客户的收货地址是否超出配送范围
-     * @param address
+     * @param addressBook
      */
-    private void checkOutOfRange(String address) {
-        Map map = new HashMap();
-        map.put("address",shopAddress);
-        map.put("output","json");
-        map.put("ak",ak);
-
-        //获取店铺的经纬度坐标
-        String shopCoordinate = HttpClientUtil.doGet("https://api.map.baidu.com/geocoding/v3", map);
-
-        JSONObject jsonObject = JSON.parseObject(shopCoordinate);
-        if(!jsonObject.getString("status").equals("0")){
-            throw new OrderBusinessException("店铺地址解析失败");
-        }
-
-        //数据解析
-        JSONObject location = jsonObject.getJSONObject("result").getJSONObject("location");
-        String lat = location.getString("lat");
-        String lng = location.getString("lng");
+    private void checkOutOfRange(AddressBook addressBook) {
         //店铺经纬度坐标
-        String shopLngLat = lat + "," + lng;
-
-        map.put("address",address);
-        //获取用户收货地址的经纬度坐标
-        String userCoordinate = HttpClientUtil.doGet("https://api.map.baidu.com/geocoding/v3", map);
-
-        jsonObject = JSON.parseObject(userCoordinate);
-        if(!jsonObject.getString("status").equals("0")){
-            throw new OrderBusinessException("收货地址解析失败");
+        Coordinate shopCoordinate = geoService.getShopCoordinate();
+        if (shopCoordinate == null) {
+            throw new OrderBusinessException(MessageConstant.SHOP_ADDRESS_RESOLVE_FAILED);
         }
 
-        //数据解析
-        location = jsonObject.getJSONObject("result").getJSONObject("location");
-        lat = location.getString("lat");
-        lng = location.getString("lng");
-        //用户收货地址经纬度坐标
-        String userLngLat = lat + "," + lng;
-
-        map.put("origin",shopLngLat);
-        map.put("destination",userLngLat);
-        map.put("steps_info","0");
-
-        //路线规划
-        String json = HttpClientUtil.doGet("https://api.map.baidu.com/directionlite/v1/driving", map);
-
-        jsonObject = JSON.parseObject(json);
-        if(!jsonObject.getString("status").equals("0")){
-            throw new OrderBusinessException("配送路线规划失败");
+        //用户收货地址经纬度坐标，优先使用地址簿中已保存的坐标
+        Coordinate userCoordinate;
+        if (addressBook.getLatitude() != null && addressBook.getLongitude() != null) {
+            userCoordinate = new Coordinate(addressBook.getLatitude(), addressBook.getLongitude());
+        } else {
+            userCoordinate = geoService.geocode(addressBook.getCityName() + addressBook.getDistrictName() + addressBook.getDetail());
+            //尚未解析过坐标的地址（历史数据），异步补齐
+            addressLocationResolver.resolve(addressBook.getId());
         }
-
-        //数据解析
-        JSONObject result = jsonObject.getJSONObject("result");
-        JSONArray jsonArray = (JSONArray) result.get("routes");
-        Integer distance = (Integer) ((JSONObject) jsonArray.get(0)).get("distance");
-
-        if(distance > 5000){
-            //配送距离超过5000米
-            throw new OrderBusinessException("超出配送范围");
+        if (userCoordinate == null) {
+            throw new OrderBusinessException(MessageConstant.ADDRESS_RESOLVE_FAILED);
         }
+
+        //先进行本地距离及区域判定，边界附近的地址才进行路线规划
+        deliveryRangeChecker.check(shopCoordinate, userCoordinate);
     }
 
 }
@@ -0,0 +1,298 @@
+package com.sky.service.impl;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.ReportBusinessException;
+import com.sky.properties.ReportProperties;
+import com.sky.service.ReportExportService;
+import com.sky.service.ReportService;
+import com.sky.vo.ReportExportJobVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 报表异步导出
+ * 导出任务在独立的有界线程池中执行，文件先写到本地磁盘，下载时从磁盘零拷贝发送，任务结束后按保留时间清理
+ * 任务信息保存在本机内存中，多实例部署时查询和下载需要路由到提交任务的实例
+ */
+@Service
+@Slf4j
+public class ReportExportServiceImpl implements ReportExportService {
+
+    private static final String FILE_SUFFIX = ".xlsx";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    //导出文件名：32位十六进制任务id + .xlsx（生成中为.xlsx.tmp）
+    private static final Pattern JOB_FILE_PATTERN = Pattern.compile("[0-9a-f]{32}\\.xlsx(\\.tmp)?");
+    private static final String EXCEL_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    //Tomcat NIO连接器的sendfile支持
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private ReportProperties reportProperties;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+    private Path spoolDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        ReportProperties.Export export = reportProperties.getExport();
+        spoolDir = StringUtils.hasText(export.getSpoolDir())
+                ? Paths.get(export.getSpoolDir())
+                : Paths.get(System.getProperty("java.io.tmpdir"), "sky-report");
+        Files.createDirectories(spoolDir);
+        deleteOrphanFiles(export.getTtl());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(export.getConcurrency(), export.getConcurrency(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(export.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("报表导出线程池初始化完成，并发数：{}，队列长度：{}，文件目录：{}",
+                export.getConcurrency(), export.getQueueCapacity(), spoolDir);
+    }
+
+    /**
+     * 任务信息只在内存中，重启后遗留的文件已无法下载，删除超过保留时间的遗留文件
+     * 目录可能是共享目录或同一主机上其他实例也在使用，只删除文件名符合任务id格式的导出文件，
+     * 未超过保留时间的文件可能属于其他实例正在进行或等待下载的任务，不删除
+     * @param ttl
+     */
+    private void deleteOrphanFiles(Duration ttl) throws IOException {
+        long expireBefore = System.currentTimeMillis() - ttl.toMillis();
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir)) {
+            for (Path file : files) {
+                if (!JOB_FILE_PATTERN.matcher(file.getFileName().toString()).matches()
+                        || !Files.isRegularFile(file)
+                        || Files.getLastModifiedTime(file).toMillis() > expireBefore) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                } catch (IOException e) {
+                    log.warn("删除遗留的导出文件失败：{}，{}", file, e.getMessage());
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("删除遗留的导出文件{}个：{}", deleted, spoolDir);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交运营数据报表导出任务，线程池和队列都已满时拒绝
+     * @param begin 开始日期，为空时默认最近30天
+     * @param end 结束日期，为空时默认昨天
+     * @return
+     */
+    public ReportExportJobVO submit(LocalDate begin, LocalDate end) {
+        if (begin != null && end != null && begin.isAfter(end)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_INVALID);
+        }
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString().replace("-", ""), begin, end);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            log.warn("导出任务过多，拒绝导出：{}至{}", begin, end);
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_BUSY);
+        }
+        log.info("提交报表导出任务：{}，{}至{}", job.id, begin, end);
+        return job.toVO();
+    }
+
+    /**
+     * 查询导出任务进度
+     * @param id
+     * @return
+     */
+    public ReportExportJobVO getJob(String id) {
+        return getExistingJob(id).toVO();
+    }
+
+    /**
+     * 下载导出文件
+     * Tomcat支持sendfile时交给连接器直接从磁盘发送，否则通过FileChannel.transferTo写出
+     * @param id
+     * @param request
+     * @param response
+     */
+    public void download(String id, HttpServletRequest request, HttpServletResponse response) {
+        ExportJob job = getExistingJob(id);
+        if (!ReportExportJobVO.SUCCESS.equals(job.status)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_NOT_READY);
+        }
+
+        Path file = job.file;
+        long fileSize = job.fileSize;
+        response.setContentType(EXCEL_CONTENT_TYPE);
+        response.setHeader("Content-Disposition", "attachment; filename=\"business-" + job.id + FILE_SUFFIX + "\"");
+        response.setContentLengthLong(fileSize);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_END_ATTR, fileSize);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = 0;
+            while (position < fileSize) {
+                position += channel.transferTo(position, fileSize - position, target);
+            }
+            out.flush();
+        } catch (IOException e) {
+            log.warn("下载导出文件失败：{}，{}", job.id, e.getMessage());
+        }
+    }
+
+    /**
+     * 清理已过期的导出任务及文件
+     */
+    public void cleanExpired() {
+        LocalDateTime expireTime = LocalDateTime.now().minus(reportProperties.getExport().getTtl());
+        Iterator<ExportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ExportJob job = iterator.next();
+            if (job.finishTime != null && job.finishTime.isBefore(expireTime)) {
+                iterator.remove();
+                deleteQuietly(job.file);
+                log.info("清理过期导出任务：{}", job.id);
+            }
+        }
+    }
+
+    /**
+     * 执行导出任务，先写入临时文件，完成后重命名，避免下载到不完整的文件
+     * @param job
+     */
+    private void run(ExportJob job) {
+        job.status = ReportExportJobVO.RUNNING;
+        Path tempFile = spoolDir.resolve(job.id + FILE_SUFFIX + TEMP_FILE_SUFFIX);
+        Path file = spoolDir.resolve(job.id + FILE_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                reportService.writeBusinessData(job.begin, job.end, out, progress -> job.progress = progress);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            job.file = file;
+            job.fileSize = Files.size(file);
+            job.progress = 100;
+            job.status = ReportExportJobVO.SUCCESS;
+            log.info("报表导出任务完成：{}，文件大小：{}", job.id, job.fileSize);
+        } catch (Exception e) {
+            deleteQuietly(tempFile);
+            job.message = e instanceof ReportBusinessException ? e.getMessage() : MessageConstant.REPORT_EXPORT_FAILED;
+            job.status = ReportExportJobVO.FAILED;
+            log.error("报表导出任务失败：{}", job.id, e);
+        } finally {
+            job.finishTime = LocalDateTime.now();
+        }
+    }
+
+    private ExportJob getExistingJob(String id) {
+        ExportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_JOB_NOT_FOUND);
+        }
+        return job;
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导出文件失败：{}，{}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 导出任务状态，由导出线程更新，查询线程读取
+     */
+    private static class ExportJob {
+        private final String id;
+        private final LocalDate begin;
+        private final LocalDate end;
+        private final LocalDateTime createTime = LocalDateTime.now();
+        private volatile Integer status = ReportExportJobVO.WAITING;
+        private volatile int progress;
+        private volatile Path file;
+        private volatile long fileSize;
+        private volatile String message;
+        private volatile LocalDateTime finishTime;
+
+        ExportJob(String id, LocalDate begin, LocalDate end) {
+            this.id = id;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        ReportExportJobVO toVO() {
+            return ReportExportJobVO.builder()
+                    .id(id)
+                    .status(status)
+                    .progress(progress)
+                    .begin(begin)
+                    .end(end)
+                    .fileSize(ReportExportJobVO.SUCCESS.equals(status) ? fileSize : null)
+                    .message(message)
+                    .createTime(createTime)
+                    .finishTime(finishTime)
+                    .build();
+        }
+    }
+}
@@ -1,40 +1,81 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
 import com.sky.dto.GoodsSalesDTO;
-import com.sky.entity.Orders;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.exception.ReportBusinessException;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.properties.ReportProperties;
+import com.sky.sales.SalesTopTracker;
+import com.sky.service.BusinessStatsService;
 import com.sky.service.ReportService;
-import com.sky.service.WorkspaceService;
 import com.sky.vo.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class ReportServiceImpl implements ReportService {
 
+    private static final String EXPORT_TEMPLATE = "template/BusinessStatisticsExcel.xlsx";
+    private static final String EXCEL_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    //未指定日期范围时默认导出的天数
+    private static final int EXPORT_DEFAULT_DAYS = 30;
+    //模板中明细数据的起始行，以及明细数据所在的列
+    private static final int EXPORT_DETAIL_FIRST_ROW = 7;
+    private static final int EXPORT_DETAIL_FIRST_CELL = 1;
+    private static final int EXPORT_DETAIL_LAST_CELL = 6;
+    //流式写出时内存中保留的行数
+    private static final int EXPORT_ROW_ACCESS_WINDOW = 100;
+    //销量排名统计方式
+    private static final String TOP_SALES_MODE_SQL = "sql";
+    private static final String TOP_SALES_MODE_VERIFY = "verify";
+
+    //报表模板内容，首次导出时加载
+    private volatile byte[] templateBytes;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
     private UserMapper userMapper;
     @Autowired
-    private WorkspaceService workspaceService;
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private SalesTopTracker salesTopTracker;
+    @Autowired
+    private ReportProperties reportProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     /**
      * 统计指定时间内的营业额统计数据
@@ -43,31 +84,16 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
-        //封装TurnoverReportVO
         //1.存放日期范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while(!begin.equals(end)){
-            //日期计算并添加
-            begin=begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
+
+        //2.按天获取营业数据（营业额是当天“已完成”的订单的营业额总和），已结束的日期读取汇总表
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(begin, end);
 
         //List集合存放每天的营业额
-        List<Double> turnoverList = new ArrayList<>();
-        for (LocalDate localDate : dateList) {
-            //2.查询日期对应的营业额（营业额是当天“已完成”的订单的营业额总和
-            LocalDateTime beginTime = LocalDateTime.of(localDate, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(localDate, LocalTime.MAX);
-            //查询语句 select sum(amount) from orders where order_time > beginTime and order_time< endTime and status = 5
-            Map map = new HashMap();
-            map.put("begin",beginTime);
-            map.put("end",endTime);
-            map.put("status", Orders.COMPLETED);
-            Double turnover = orderMapper.sumByMap(map);
-            turnover = turnover==null ? 0.0 : turnover;
-            turnoverList.add(turnover);
-        }
+        List<Double> turnoverList = dailyStats.stream()
+                .map(stats -> stats.getTurnover().doubleValue())
+                .collect(Collectors.toList());
         //封装返回结果
         return TurnoverReportVO.builder()
                 .dateList(StringUtils.join(dateList,","))
@@ -82,32 +108,25 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
-        //封装UserReportVO
         //1.存放日期范围内每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while(!begin.equals(end)){
-            //日期计算并添加
-            begin=begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
 
-        //2.存放每天的用户总量 select count(id) from user where create time< ?
-        List<Integer> totalUserList = new ArrayList<>();
-        //3.存放每天的新增用户量：select count(id) from user where create time> ? and create time< ?
-        List<Integer> newUserList = new ArrayList<>();
-        for (LocalDate localDate : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(localDate, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(localDate, LocalTime.MAX);
+        //2.开始日期之前的用户总量 select count(id) from user where create_time < ?
+        Map map = new HashMap();
+        map.put("end", LocalDateTime.of(begin, LocalTime.MIN));
+        Integer totalUser = userMapper.countByMap(map);
 
-            Map map = new HashMap();
-            map.put("end",endTime);
-            Integer totalUser = userMapper.countByMap(map);
-            totalUserList.add(totalUser);
+        //3.按天获取新增用户数，已结束的日期读取汇总表
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(begin, end);
 
-            map.put("begin",beginTime);
-            Integer newUser = userMapper.countByMap(map);
+        //4.存放每天的新增用户量，用户总量为新增用户量的前缀和
+        List<Integer> totalUserList = new ArrayList<>();
+        List<Integer> newUserList = new ArrayList<>();
+        for (DailyBusinessStats stats : dailyStats) {
+            Integer newUser = stats.getNewUsers();
+            totalUser += newUser;
             newUserList.add(newUser);
+            totalUserList.add(totalUser);
         }
 
         return UserReportVO.builder()
@@ -124,36 +143,19 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public OrderReportVO getOrdersStatistics(LocalDate begin, LocalDate end) {
-        //封装OrderReportVO
         //1.日期，以逗号分隔，例如：2022-10-01,2022-10-02,2022-10-03
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while(!begin.equals(end)){
-            //日期计算并添加
-            begin=begin.plusDays(1);
-            dateList.add(begin);
-        }
+        List<LocalDate> dateList = getDateList(begin, end);
+
+        //按天获取订单数据，已结束的日期读取汇总表
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(begin, end);
 
         //2.每日订单数，以逗号分隔，例如：260,210,215
         List<Integer> orderCountList = new ArrayList<>();
         //3.每日有效订单数(订单状态为已完成的），以逗号分隔，例如：20,21,10
         List<Integer> validOrderCountList = new ArrayList<>();
-        for (LocalDate localDate : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(localDate, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(localDate, LocalTime.MAX);
-
-            // 查询总订单数
-            Map map = new HashMap();
-            map.put("begin", beginTime);
-            map.put("end", endTime);
-            Integer orders = orderMapper.countByMap(map);
-
-            // 查询有效订单数
-            map.put("status", Orders.COMPLETED);
-            Integer validOrders = orderMapper.countByMap(map);
-
-            orderCountList.add(orders);
-            validOrderCountList.add(validOrders);
+        for (DailyBusinessStats stats : dailyStats) {
+            orderCountList.add(stats.getTotalOrderCount());
+            validOrderCountList.add(stats.getValidOrderCount());
         }
 
         //4.订单总数（采用stream流）
@@ -178,6 +180,58 @@ public class ReportServiceImpl implements ReportService {
                 .build();
     }
 
+    /**
+     * 生成从begin到end（包含）的每一天
+     * @param begin
+     * @param end
+     * @return
+     */
+    private List<LocalDate> getDateList(LocalDate begin, LocalDate end) {
+        List<LocalDate> dateList = new ArrayList<>();
+        dateList.add(begin);
+        while(!begin.equals(end)){
+            //日期计算并添加
+            begin=begin.plusDays(1);
+            dateList.add(begin);
+        }
+        return dateList;
+    }
+
+    /**
+     * 将多天的营业数据汇总为概览数据
+     * @param statsList
+     * @return
+     */
+    private BusinessDataVO toBusinessData(List<DailyBusinessStats> statsList) {
+        BigDecimal turnover = BigDecimal.ZERO;
+        int validOrderCount = 0;
+        int totalOrderCount = 0;
+        int newUsers = 0;
+        for (DailyBusinessStats stats : statsList) {
+            turnover = turnover.add(stats.getTurnover());
+            validOrderCount += stats.getValidOrderCount();
+            totalOrderCount += stats.getTotalOrderCount();
+            newUsers += stats.getNewUsers();
+        }
+
+        Double unitPrice = 0.0;
+        Double orderCompletionRate = 0.0;
+        if (totalOrderCount != 0 && validOrderCount != 0) {
+            //订单完成率
+            orderCompletionRate = (double) validOrderCount / totalOrderCount;
+            //平均客单价
+            unitPrice = turnover.doubleValue() / validOrderCount;
+        }
+
+        return BusinessDataVO.builder()
+                .turnover(turnover.doubleValue())
+                .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers(newUsers)
+                .build();
+    }
+
     /**
      * 获取订单销量前10
      * @param begin
@@ -185,10 +239,29 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end) {
-        LocalDateTime beginTime = LocalDateTime.of(begin,LocalTime.MIN);
-        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
-
-        List<GoodsSalesDTO> salesTop10 = orderMapper.getSalesTop10(beginTime, endTime);
+        List<GoodsSalesDTO> salesTop10;
+        String mode = reportProperties.getTopSales().getMode();
+        if (TOP_SALES_MODE_SQL.equals(mode)) {
+            salesTop10 = getSalesTop10FromDB(begin, end);
+        } else {
+            //内存统计，日期范围不在统计内时回退到数据库查询
+            List<GoodsSalesDTO> sketchTop10 = salesTopTracker.top(begin, end, 10);
+            if (sketchTop10 == null) {
+                salesTop10 = getSalesTop10FromDB(begin, end);
+            } else if (TOP_SALES_MODE_VERIFY.equals(mode)) {
+                //比对模式：返回数据库结果，并记录两者是否一致
+                salesTop10 = getSalesTop10FromDB(begin, end);
+                //并列的商品排序可能不同，按 商品->销量 比对
+                boolean match = salesTop10.stream().collect(Collectors.toMap(GoodsSalesDTO::getName, GoodsSalesDTO::getNumber))
+                        .equals(sketchTop10.stream().collect(Collectors.toMap(GoodsSalesDTO::getName, GoodsSalesDTO::getNumber)));
+                meterRegistry.counter("report.top10.verify", "result", match ? "match" : "mismatch").increment();
+                if (!match) {
+                    log.warn("销量排名统计与数据库不一致：{}至{}，统计：{}，数据库：{}", begin, end, sketchTop10, salesTop10);
+                }
+            } else {
+                salesTop10 = sketchTop10;
+            }
+        }
 
         List<String> nameList = salesTop10.stream().map(GoodsSalesDTO::getName).collect(Collectors.toList());
         List<Integer> numberList = salesTop10.stream().map(GoodsSalesDTO::getNumber).collect(Collectors.toList());
@@ -199,68 +272,141 @@ public class ReportServiceImpl implements ReportService {
                 .build();
     }
 
+    /**
+     * 从数据库查询订单销量前10
+     * @param begin
+     * @param end
+     * @return
+     */
+    private List<GoodsSalesDTO> getSalesTop10FromDB(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin,LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
+        return orderMapper.getSalesTop10(beginTime, endTime);
+    }
+
     /**
      * 导出运营数据报表
+     * @param begin 开始日期（包含），为空时默认最近30天
+     * @param end 结束日期（包含），为空时默认昨天
      * @param response
      */
-    public void exportBusinessData(HttpServletResponse response) {
-        //1.查询数据库，获取营业数据--最近30天的运营数据
-        LocalDate begin = LocalDate.now().minusDays(30);
-        LocalDate end = LocalDate.now().minusDays(1);
+    public void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response) {
+        try {
+            //通过输出流将Excel文件下载到客户端浏览器
+            response.setContentType(EXCEL_CONTENT_TYPE);
+            ServletOutputStream out = response.getOutputStream();
+            writeBusinessData(begin, end, out, null);
+            out.flush();
+        } catch (IOException e) {
+            log.error("导出运营数据报表失败：{}至{}", begin, end, e);
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_FAILED);
+        }
+    }
 
-        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
-        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
+    /**
+     * 生成运营数据报表并写入输出流
+     * 营业数据一次按天获取，模板只读取一次，明细行通过SXSSF流式写出，内存占用不随日期范围增长
+     * @param begin 开始日期（包含），为空时默认最近30天
+     * @param end 结束日期（包含），为空时默认昨天
+     * @param out 输出流，由调用方关闭
+     * @param progressListener 进度回调（0-100），可以为null
+     * @throws IOException
+     */
+    public void writeBusinessData(LocalDate begin, LocalDate end, OutputStream out, IntConsumer progressListener) throws IOException {
+        //1.确定日期范围，默认最近30天
+        if (end == null) {
+            end = LocalDate.now().minusDays(1);
+        }
+        if (begin == null) {
+            begin = end.minusDays(EXPORT_DEFAULT_DAYS - 1);
+        }
+        if (begin.isAfter(end)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_INVALID);
+        }
+
+        //2.一次获取整个时间段的按天营业数据，已结束的日期读取汇总表
+        List<DailyBusinessStats> dailyStats = businessStatsService.getDailyStats(begin, end);
+        BusinessDataVO businessData = toBusinessData(dailyStats);
 
-        BusinessDataVO businessData = workspaceService.getBusinessData(beginTime, endTime);
-        //2.通过POI将数据写入到Excel文件中
-        //(1)传输入流来读取模板
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/BusinessStatisticsExcel.xlsx");
+        //3.通过POI将数据写入到Excel文件中
+        SXSSFWorkbook excel = null;
         try {
-            //（2）基于模板文件创建新的excel文件
-            XSSFWorkbook excel = new XSSFWorkbook(in);
-            //(3) 填充数据-时间
-            XSSFSheet sheet1 = excel.getSheet("Sheet1");
+            //(1)基于缓存的模板创建新的excel文件
+            XSSFWorkbook template = new XSSFWorkbook(new ByteArrayInputStream(getTemplate()));
+            XSSFSheet sheet1 = template.getSheet("Sheet1");
+            //(2)填充数据-时间
             sheet1.getRow(1).getCell(1).setCellValue("时间："+begin+"至"+end);
-            //(4) 填充数据-概览数据
+            //(3)填充数据-概览数据
             //①营业额 turnover
             sheet1.getRow(3).getCell(2).setCellValue(businessData.getTurnover());
             //②订单完成率 orderCompletionRate
             sheet1.getRow(3).getCell(4).setCellValue(businessData.getOrderCompletionRate());
-            //②新增用户数 newUsers
+            //③新增用户数 newUsers
             sheet1.getRow(3).getCell(6).setCellValue(businessData.getNewUsers());
             //④有效订单 validOrderCount
             sheet1.getRow(4).getCell(2).setCellValue(businessData.getValidOrderCount());
             //⑤平均客单价 unitPrice
             sheet1.getRow(4).getCell(4).setCellValue(businessData.getUnitPrice());
 
-            //(5)填充数据—明细数据
-            //①生成日期List
-            //②填入数据
-            for (int i=0;i<30;i++) {
-                //时间设置
-                LocalDate localDate = begin.plusDays(i);
-                LocalDateTime timeOfBegin = LocalDateTime.of(localDate, LocalTime.MIN);
-                LocalDateTime timeOfEnd = LocalDateTime.of(localDate, LocalTime.MAX);
-                BusinessDataVO businessDataOfDay = workspaceService.getBusinessData(timeOfBegin, timeOfEnd);
-                //填写数据
-                sheet1.getRow(7+i).getCell(1).setCellValue(localDate.toString());
-                sheet1.getRow(7+i).getCell(2).setCellValue(businessDataOfDay.getTurnover());
-                sheet1.getRow(7+i).getCell(3).setCellValue(businessDataOfDay.getValidOrderCount());
-                sheet1.getRow(7+i).getCell(4).setCellValue(businessDataOfDay.getOrderCompletionRate());
-                sheet1.getRow(7+i).getCell(5).setCellValue(businessDataOfDay.getUnitPrice());
-                sheet1.getRow(7+i).getCell(6).setCellValue(businessDataOfDay.getNewUsers());
+            //(4)记录模板明细行的样式后删除模板中的明细行，明细行改为流式追加
+            XSSFRow styleRow = sheet1.getRow(EXPORT_DETAIL_FIRST_ROW);
+            short rowHeight = styleRow.getHeight();
+            CellStyle[] styles = new CellStyle[EXPORT_DETAIL_LAST_CELL + 1];
+            for (int i = EXPORT_DETAIL_FIRST_CELL; i <= EXPORT_DETAIL_LAST_CELL; i++) {
+                styles[i] = styleRow.getCell(i).getCellStyle();
+            }
+            for (int i = sheet1.getLastRowNum(); i >= EXPORT_DETAIL_FIRST_ROW; i--) {
+                XSSFRow row = sheet1.getRow(i);
+                if (row != null) {
+                    sheet1.removeRow(row);
+                }
+            }
+
+            //(5)填充数据—明细数据，内存中只保留最近的若干行
+            excel = new SXSSFWorkbook(template, EXPORT_ROW_ACCESS_WINDOW);
+            SXSSFSheet sheet = excel.getSheet("Sheet1");
+            for (int i = 0; i < dailyStats.size(); i++) {
+                DailyBusinessStats stats = dailyStats.get(i);
+                BusinessDataVO businessDataOfDay = toBusinessData(Collections.singletonList(stats));
+                SXSSFRow row = sheet.createRow(EXPORT_DETAIL_FIRST_ROW + i);
+                row.setHeight(rowHeight);
+                row.createCell(1).setCellValue(stats.getStatDate().toString());
+                row.createCell(2).setCellValue(businessDataOfDay.getTurnover());
+                row.createCell(3).setCellValue(businessDataOfDay.getValidOrderCount());
+                row.createCell(4).setCellValue(businessDataOfDay.getOrderCompletionRate());
+                row.createCell(5).setCellValue(businessDataOfDay.getUnitPrice());
+                row.createCell(6).setCellValue(businessDataOfDay.getNewUsers());
+                for (int j = EXPORT_DETAIL_FIRST_CELL; j <= EXPORT_DETAIL_LAST_CELL; j++) {
+                    row.getCell(j).setCellStyle(styles[j]);
+                }
+                if (progressListener != null) {
+                    progressListener.accept((i + 1) * 100 / dailyStats.size());
+                }
             }
 
-            //3.通过输出流将Excel文件下载到客户端浏览器
-            ServletOutputStream out = response.getOutputStream();
+            //4.写入输出流
             excel.write(out);
-
-            //4.关闭资源
-            out.close();
-            excel.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+        } finally {
+            //5.删除流式写出产生的临时文件
+            if (excel != null) {
+                excel.dispose();
+            }
         }
+    }
 
+    /**
+     * 获取报表模板内容，只从classpath读取一次
+     * @return
+     * @throws IOException
+     */
+    private byte[] getTemplate() throws IOException {
+        byte[] template = templateBytes;
+        if (template == null) {
+            try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(EXPORT_TEMPLATE)) {
+                template = StreamUtils.copyToByteArray(in);
+            }
+            templateBytes = template;
+        }
+        return template;
     }
 }
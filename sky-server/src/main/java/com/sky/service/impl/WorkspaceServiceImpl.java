@@ -1,6 +1,7 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.dto.OrderStatusStatDTO;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
@@ -11,6 +12,7 @@ import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
 import com.sky.vo.OrderOverViewVO;
 import com.sky.vo.SetmealOverViewVO;
+import com.sky.vo.WorkspaceSnapshotVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -39,6 +41,87 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public BusinessDataVO getBusinessData(LocalDateTime begin, LocalDateTime end) {
+        //一次扫描统计订单总数、有效订单数和营业额
+        OrderStatusStatDTO orderStats = getOrderStats(begin, end);
+        return toBusinessData(orderStats, countNewUsers(begin, end));
+    }
+
+    /**
+     * 查询订单管理数据
+     *
+     * @return
+     */
+    public OrderOverViewVO getOrderOverView() {
+        LocalDateTime begin = LocalDateTime.now().with(LocalTime.MIN);
+        OrderStatusStatDTO orderStats = getOrderStats(begin, begin.plusDays(1));
+        return toOrderOverView(orderStats);
+    }
+
+    /**
+     * 查询菜品总览
+     *
+     * @return
+     */
+    public DishOverViewVO getDishOverView() {
+        return dishMapper.getStatusStats(StatusConstant.ENABLE, StatusConstant.DISABLE);
+    }
+
+    /**
+     * 查询套餐总览
+     *
+     * @return
+     */
+    public SetmealOverViewVO getSetmealOverView() {
+        return setmealMapper.getStatusStats(StatusConstant.ENABLE, StatusConstant.DISABLE);
+    }
+
+    /**
+     * 查询工作台全部数据：今日订单一次扫描同时得到运营数据和订单管理数据，加上新增用户、菜品、套餐共4条查询
+     * @return
+     */
+    public WorkspaceSnapshotVO getSnapshot() {
+        LocalDateTime begin = LocalDateTime.now().with(LocalTime.MIN);
+        LocalDateTime end = begin.plusDays(1);
+        OrderStatusStatDTO orderStats = getOrderStats(begin, end);
+
+        return WorkspaceSnapshotVO.builder()
+                .businessData(toBusinessData(orderStats, countNewUsers(begin, end)))
+                .orderOverView(toOrderOverView(orderStats))
+                .dishOverView(dishMapper.getStatusStats(StatusConstant.ENABLE, StatusConstant.DISABLE))
+                .setmealOverView(setmealMapper.getStatusStats(StatusConstant.ENABLE, StatusConstant.DISABLE))
+                .build();
+    }
+
+    /**
+     * 一次扫描按状态统计时间段内的订单数量和营业额
+     * @param begin
+     * @param end
+     * @return
+     */
+    private OrderStatusStatDTO getOrderStats(LocalDateTime begin, LocalDateTime end) {
+        return orderMapper.getStatusStats(begin, end, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.COMPLETED, Orders.CANCELLED);
+    }
+
+    /**
+     * 统计时间段内的新增用户数
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Integer countNewUsers(LocalDateTime begin, LocalDateTime end) {
+        Map map = new HashMap();
+        map.put("begin",begin);
+        map.put("end",end);
+        return userMapper.countByMap(map);
+    }
+
+    /**
+     * 根据订单统计数据计算营业数据
+     * @param orderStats
+     * @param newUsers
+     * @return
+     */
+    private BusinessDataVO toBusinessData(OrderStatusStatDTO orderStats, Integer newUsers) {
         /**
          * 营业额：当日已完成订单的总金额
          * 有效订单：当日已完成订单的数量
@@ -46,21 +129,9 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 平均客单价：营业额 / 有效订单数
          * 新增用户：当日新增用户的数量
          */
-
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
-
-        //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
-
-        map.put("status", Orders.COMPLETED);
-        //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
-
-        //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
+        Integer totalOrderCount = orderStats.getOrderCount();
+        Integer validOrderCount = orderStats.getCompletedCount();
+        Double turnover = orderStats.getTurnover();
 
         Double unitPrice = 0.0;
 
@@ -72,9 +143,6 @@ public class WorkspaceServiceImpl implements WorkspaceService {
             unitPrice = turnover / validOrderCount;
         }
 
-        //新增用户数
-        Integer newUsers = userMapper.countByMap(map);
-
         return BusinessDataVO.builder()
                 .turnover(turnover)
                 .validOrderCount(validOrderCount)
@@ -84,80 +152,18 @@ public class WorkspaceServiceImpl implements WorkspaceService {
                 .build();
     }
 
-
     /**
-     * 查询订单管理数据
-     *
+     * 根据订单统计数据计算订单管理数据
+     * @param orderStats
      * @return
      */
-    public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
-
-        //待接单
-        Integer waitingOrders = orderMapper.countByMap(map);
-
-        //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
-
-        //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
-
-        //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
-
-        //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
-
+    private OrderOverViewVO toOrderOverView(OrderStatusStatDTO orderStats) {
         return OrderOverViewVO.builder()
-                .waitingOrders(waitingOrders)
-                .deliveredOrders(deliveredOrders)
-                .completedOrders(completedOrders)
-                .cancelledOrders(cancelledOrders)
-                .allOrders(allOrders)
-                .build();
-    }
-
-    /**
-     * 查询菜品总览
-     *
-     * @return
-     */
-    public DishOverViewVO getDishOverView() {
-        Map map = new HashMap();
-        map.put("status", StatusConstant.ENABLE);
-        Integer sold = dishMapper.countByMap(map);
-
-        map.put("status", StatusConstant.DISABLE);
-        Integer discontinued = dishMapper.countByMap(map);
-
-        return DishOverViewVO.builder()
-                .sold(sold)
-                .discontinued(discontinued)
-                .build();
-    }
-
-    /**
-     * 查询套餐总览
-     *
-     * @return
-     */
-    public SetmealOverViewVO getSetmealOverView() {
-        Map map = new HashMap();
-        map.put("status", StatusConstant.ENABLE);
-        Integer sold = setmealMapper.countByMap(map);
-
-        map.put("status", StatusConstant.DISABLE);
-        Integer discontinued = setmealMapper.countByMap(map);
-
-        return SetmealOverViewVO.builder()
-                .sold(sold)
-                .discontinued(discontinued)
+                .waitingOrders(orderStats.getToBeConfirmedCount())
+                .deliveredOrders(orderStats.getConfirmedCount())
+                .completedOrders(orderStats.getCompletedCount())
+                .cancelledOrders(orderStats.getCancelledCount())
+                .allOrders(orderStats.getOrderCount())
                 .build();
     }
 }
@@ -0,0 +1,38 @@
+package com.sky.task;
+
+import com.sky.annotation.ClusterTask;
+import com.sky.properties.ReportProperties;
+import com.sky.service.BusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+@Component
+@Slf4j
+public class BusinessStatsTask {
+    @Autowired
+    private BusinessStatsService businessStatsService;
+    @Autowired
+    private ReportProperties reportProperties;
+
+    /**
+     * 核对最近几天的每日营业数据汇总，在凌晨处理派送中订单之后执行
+     * 再往前的日期只补齐汇总表中缺失的数据（如汇总表上线前的历史数据）
+     */
+    @Scheduled(cron = " 0 30 1 * * ? ")
+    @ClusterTask("report.daily-stats")
+    public void reconcileDailyStats(){
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate begin = end.minusDays(reportProperties.getReconcileDays() - 1);
+        log.info("核对每日营业数据汇总：{}至{}", begin, end);
+        businessStatsService.reconcile(begin, end);
+
+        LocalDate backfillBegin = end.minusDays(reportProperties.getBackfillDays() - 1);
+        if (backfillBegin.isBefore(begin)) {
+            businessStatsService.backfill(backfillBegin, begin.minusDays(1));
+        }
+    }
+}
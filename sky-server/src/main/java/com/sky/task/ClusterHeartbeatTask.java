@@ -0,0 +1,20 @@
+package com.sky.task;
+
+import com.sky.cluster.ClusterNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ClusterHeartbeatTask {
+    @Autowired
+    private ClusterNode clusterNode;
+
+    /**
+     * 每隔10秒发送集群心跳，间隔需小于sky.cluster.node-ttl
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void heartbeat() {
+        clusterNode.heartbeat();
+    }
+}
@@ -1,7 +1,15 @@
 package com.sky.task;
 
+import com.sky.annotation.ClusterTask;
+import com.sky.cluster.ClusterNode;
+import com.sky.cluster.Shard;
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.order.OrderStateMachine;
+import com.sky.order.OrderStatusCounter;
+import com.sky.order.OrderTimeoutScheduler;
+import com.sky.order.OrderTransition;
+import com.sky.properties.OrderProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -9,44 +17,102 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 
 @Component
 @Slf4j
 public class OrderTask {
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderTimeoutScheduler orderTimeoutScheduler;
+    @Autowired
+    private OrderProperties orderProperties;
+    @Autowired
+    private ClusterNode clusterNode;
     /**
-     * 处理超时订单
+     * 处理已到期但未被本节点时间轮触发的超时订单（例如注册该订单的节点已宕机）
+     * 到期订单由redis原子取出，每个节点都执行也不会重复处理
      */
-    @Scheduled(cron = " 0 * * * * ? ")
+    @Scheduled(fixedDelay = 30000)
+    public void drainTimeoutOrder(){
+        orderTimeoutScheduler.drain();
+    }
+
+    /**
+     * 处理超时订单（兜底），超时订单正常由OrderTimeoutScheduler按时取消，这里只处理redis中丢失的订单
+     */
+    @Scheduled(cron = " 0 0/10 * * * ? ")
+    @ClusterTask(value = "order.timeout", sharded = true)
     public void processTimeoutOrder(){
         log.info("处理超时订单：{}", LocalDateTime.now());
-        //select * from orders where status=? and order_time<( now - 15min )
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, LocalDateTime.now().plusMinutes(-15));
-
-        if (ordersList!=null && ordersList.size()>0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时，自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
-            }
-        }
+        sweep(OrderTransition.TIMEOUT_CANCEL, Orders.PENDING_PAYMENT,
+                LocalDateTime.now().minus(orderProperties.getPaymentTimeout()), () -> {
+                    Orders orders = new Orders();
+                    orders.setCancelReason("订单超时，自动取消");
+                    orders.setCancelTime(LocalDateTime.now());
+                    return orders;
+                });
     }
 
     /**
      * 处理一直处于派送中的订单
      */
     @Scheduled(cron = " 0 0 1 * * ? ")
+    @ClusterTask(value = "order.delivery", sharded = true)
     public void processDeliveryOrder(){
         log.info("定时处理派送中的订单：{}", LocalDateTime.now());
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, LocalDateTime.now().minusMinutes(-60));
+        sweep(OrderTransition.COMPLETE, Orders.DELIVERY_IN_PROGRESS, LocalDateTime.now().minusMinutes(60), Orders::new);
+    }
+
+    /**
+     * 按数据库核对各状态的订单数量计数
+     */
+    @Scheduled(cron = " 0 0/5 * * * ? ")
+    @ClusterTask("order.status-count")
+    public void reconcileStatusCount(){
+        log.info("核对订单状态计数：{}", LocalDateTime.now());
+        orderStatusCounter.reconcile();
+    }
 
-        if (ordersList!=null && ordersList.size()>0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+    /**
+     * 分批处理指定状态下单时间早于before的订单，每批只查询id，再用一条条件更新批量变更状态
+     * 多节点部署时每个节点只处理自己的分片；按id递增分批，某一批失败或其中的订单状态已变化时不会重复处理
+     * @param transition
+     * @param status 订单当前状态
+     * @param before 下单时间上限
+     * @param changes 每批需要更新的字段
+     */
+    private void sweep(OrderTransition transition, Integer status, LocalDateTime before, Supplier<Orders> changes){
+        long start = System.currentTimeMillis();
+        int batchSize = orderProperties.getTimeoutBatchSize();
+        int matched = 0;
+        int affected = 0;
+        int batches = 0;
+        Shard shard = clusterNode.getShard();
+        Long lastId = 0L;
+        while (true) {
+            List<Long> ids = orderMapper.getIdsByStatusAndOrderTimeLT(status, before, shard, lastId, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            batches++;
+            matched += ids.size();
+            lastId = ids.get(ids.size() - 1);
+            try {
+                affected += orderStateMachine.fireBatch(transition, ids, changes.get()).size();
+            } catch (Exception e) {
+                log.error("批量处理订单失败：{}，订单id：{}-{}", transition, ids.get(0), lastId, e);
+            }
+            if (ids.size() < batchSize) {
+                break;
             }
         }
+        log.info("批量处理订单完成：{}，分片{}/{}，匹配{}个，变更{}个，共{}批，耗时{}ms",
+                transition, shard.getIndex(), shard.getTotal(), matched, affected, batches, System.currentTimeMillis() - start);
     }
 }
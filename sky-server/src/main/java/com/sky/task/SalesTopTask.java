@@ -0,0 +1,37 @@
+package com.sky.task;
+
+import com.sky.annotation.ClusterTask;
+import com.sky.sales.SalesTopTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class SalesTopTask {
+    @Autowired
+    private SalesTopTracker salesTopTracker;
+
+    /**
+     * 每30秒把本节点的销量计数写入redis，并读取其他节点的计数
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void syncSalesTop(){
+        salesTopTracker.snapshot();
+        try {
+            salesTopTracker.refreshRemote();
+        } catch (Exception e) {
+            log.warn("读取其他节点销量计数失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每天凌晨按数据库重建已结束日期的销量统计，在处理派送中订单之后执行
+     */
+    @Scheduled(cron = " 0 0 2 * * ? ")
+    @ClusterTask("report.sales-top-rebuild")
+    public void rebuildSalesTop(){
+        salesTopTracker.rebuild();
+    }
+}
@@ -14,6 +14,7 @@ public class WebSocketTask {
 
     /**
      * 通过WebSocket每隔5秒向客户端发送消息
+     * 只能发送给连接到本节点的客户端，因此每个节点都要执行，不做集群协调
      */
     @Scheduled(cron = "0/5 * * * * ?")
     public void sendMessageToClient() {
@@ -0,0 +1,114 @@
+package com.sky.cache;
+
+import com.sky.entity.DishFlavor;
+import com.sky.vo.DishVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis值序列化器的基准测试：Smile与JDK序列化对菜单缓存条目的编码、解码耗时及数据大小
+ * 条目与菜单缓存实际写入redis的一致，为包装在CachedValue中的List<DishVO>，每个菜品带2~4种口味；
+ * 10、50个菜品对应单个分类，200个菜品对应整个菜单；数据大小在准备阶段输出
+ * 运行：mvn -P jmh -pl sky-server -am test -Djmh.args="RedisSerializerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    private static final String[][] FLAVORS = {
+            {"甜味", "[\"无糖\",\"少糖\",\"半糖\",\"多糖\",\"全糖\"]"},
+            {"温度", "[\"热饮\",\"常温\",\"去冰\",\"少冰\",\"多冰\"]"},
+            {"忌口", "[\"不要葱\",\"不要蒜\",\"不要香菜\",\"不要辣\"]"},
+            {"辣度", "[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]"}
+    };
+
+    @Param({"smile", "jdk"})
+    private String serializer;
+
+    @Param({"10", "50", "200"})
+    private int dishes;
+
+    private RedisSerializer<Object> redisSerializer;
+    private CachedValue value;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        redisSerializer = "smile".equals(serializer)
+                ? new SmileRedisSerializer(classLoader)
+                : new JdkSerializationRedisSerializer(classLoader);
+        value = new CachedValue(menu(dishes), System.currentTimeMillis(), false);
+        bytes = redisSerializer.serialize(value);
+        //JMH转发子进程输出时不保证中文编码，这里只输出ASCII
+        System.out.printf("%nserializer=%s, dishes=%d, payload=%d bytes%n", serializer, dishes, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(bytes);
+    }
+
+    /**
+     * 按菜品数量生成固定的随机菜单
+     */
+    private static List<DishVO> menu(int count) {
+        Random random = new Random(count);
+        LocalDateTime updateTime = LocalDateTime.of(2024, 1, 1, 10, 0);
+        List<DishVO> list = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            long categoryId = 11 + i / 10;
+            List<DishFlavor> flavors = new ArrayList<>();
+            int flavorCount = 2 + random.nextInt(3);
+            for (int j = 0; j < flavorCount; j++) {
+                flavors.add(DishFlavor.builder()
+                        .id(i * 10L + j)
+                        .dishId((long) i)
+                        .name(FLAVORS[j][0])
+                        .value(FLAVORS[j][1])
+                        .build());
+            }
+            list.add(DishVO.builder()
+                    .id((long) i)
+                    .name("招牌菜品" + i)
+                    .categoryId(categoryId)
+                    .categoryName("分类" + categoryId)
+                    .price(BigDecimal.valueOf(1800 + random.nextInt(8000), 2))
+                    .image("https://sky-take-out.oss-cn-beijing.aliyuncs.com/" + String.format("%032x", random.nextLong()) + ".png")
+                    .description("精选食材现做，口味鲜美，份量充足，第" + i + "号菜品")
+                    .status(1)
+                    .updateTime(updateTime.plusMinutes(random.nextInt(100000)))
+                    .flavors(flavors)
+                    .build());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sky.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配送区域围栏判断的基准测试
+ * 区域为中心点附近半径约5km、边界带随机起伏的多边形；
+ * 测试点分两组：外包矩形内的点（需要完整射线判断）和随机分布在约±10km内的点（部分被外包矩形直接排除）
+ * 运行：mvn -P jmh -pl sky-server -am test -Djmh.args="GeoPolygonBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoPolygonBenchmark {
+
+    private static final double CENTER_LAT = 31.2304;
+    private static final double CENTER_LNG = 121.4737;
+    //约5km
+    private static final double RADIUS = 0.045;
+    private static final int POINTS = 1024;
+
+    @Param({"100", "1000"})
+    private int vertices;
+
+    private GeoPolygon polygon;
+    private Coordinate[] boxPoints;
+    private Coordinate[] randomPoints;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<Coordinate> ring = new ArrayList<>(vertices);
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double r = RADIUS * (0.8 + 0.2 * random.nextDouble());
+            ring.add(new Coordinate(CENTER_LAT + r * Math.sin(angle), CENTER_LNG + r * Math.cos(angle)));
+        }
+        polygon = new GeoPolygon(ring);
+
+        boxPoints = new Coordinate[POINTS];
+        randomPoints = new Coordinate[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            boxPoints[i] = new Coordinate(CENTER_LAT + (random.nextDouble() - 0.5) * 1.6 * RADIUS,
+                    CENTER_LNG + (random.nextDouble() - 0.5) * 1.6 * RADIUS);
+            randomPoints[i] = new Coordinate(CENTER_LAT + (random.nextDouble() - 0.5) * 4 * RADIUS,
+                    CENTER_LNG + (random.nextDouble() - 0.5) * 4 * RADIUS);
+        }
+    }
+
+    @Benchmark
+    public boolean containsInsideBoundingBox() {
+        return polygon.contains(boxPoints[index++ & (POINTS - 1)]);
+    }
+
+    @Benchmark
+    public boolean containsRandom() {
+        return polygon.contains(randomPoints[index++ & (POINTS - 1)]);
+    }
+}
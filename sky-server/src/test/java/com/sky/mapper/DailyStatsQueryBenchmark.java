@@ -0,0 +1,146 @@
+package com.sky.mapper;
+
+import com.sky.dto.OrderDailyStatDTO;
+import com.sky.dto.UserDailyStatDTO;
+import com.sky.entity.Orders;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 营业额、订单、用户统计报表的查询方式对比：
+ * perDay 为原来的逐天查询（每天营业额、订单总数、有效订单数、用户总数、新增用户数各一条语句），
+ * grouped 为按天分组的查询（订单、新增用户各一条语句，再加一次用户基数统计）
+ * 数据为H2内存数据库中生成的一年订单和用户，没有网络往返，MySQL上逐天查询的差距会更大
+ * 运行：mvn -P jmh -pl sky-server -am test -Djmh.args="DailyStatsQueryBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DailyStatsQueryBenchmark {
+
+    private static final int DATA_DAYS = 400;
+    private static final int ORDERS_PER_DAY = 300;
+    private static final int USERS_PER_DAY = 30;
+
+    @Param({"30", "90", "365"})
+    private int days;
+
+    private SqlSession sqlSession;
+    private OrderMapper orderMapper;
+    private UserMapper userMapper;
+    private LocalDate end;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        DataSource dataSource = H2MapperSupport.dataSource("daily_stats_" + days);
+        H2MapperSupport.execute(dataSource,
+                "create table orders (id bigint auto_increment primary key, status int, user_id bigint, " +
+                        "order_time datetime, amount decimal(10,2))",
+                "create index idx_orders_order_time on orders(order_time)",
+                "create table user (id bigint auto_increment primary key, create_time datetime)",
+                "create index idx_user_create_time on user(create_time)");
+        generate(dataSource);
+
+        SqlSessionFactory sqlSessionFactory = H2MapperSupport.sqlSessionFactory(dataSource,
+                "mapper/OrderMapper.xml", "mapper/UserMapper.xml");
+        sqlSession = sqlSessionFactory.openSession();
+        orderMapper = sqlSession.getMapper(OrderMapper.class);
+        userMapper = sqlSession.getMapper(UserMapper.class);
+        end = LocalDate.now().minusDays(1);
+    }
+
+    private void generate(DataSource dataSource) throws Exception {
+        Random random = new Random(42);
+        LocalDate first = LocalDate.now().minusDays(DATA_DAYS);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement orders = connection.prepareStatement(
+                    "insert into orders (status, user_id, order_time, amount) values (?, ?, ?, ?)");
+                 PreparedStatement users = connection.prepareStatement("insert into user (create_time) values (?)")) {
+                for (int d = 0; d < DATA_DAYS; d++) {
+                    LocalDate date = first.plusDays(d);
+                    for (int i = 0; i < ORDERS_PER_DAY; i++) {
+                        orders.setInt(1, 1 + random.nextInt(6));
+                        orders.setLong(2, random.nextInt(10000));
+                        orders.setTimestamp(3, Timestamp.valueOf(date.atTime(LocalTime.ofSecondOfDay(random.nextInt(86400)))));
+                        orders.setDouble(4, 20 + random.nextInt(20000) / 100.0);
+                        orders.addBatch();
+                    }
+                    for (int i = 0; i < USERS_PER_DAY; i++) {
+                        users.setTimestamp(1, Timestamp.valueOf(date.atTime(LocalTime.ofSecondOfDay(random.nextInt(86400)))));
+                        users.addBatch();
+                    }
+                    orders.executeBatch();
+                    users.executeBatch();
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    @Benchmark
+    public void perDay(Blackhole blackhole) {
+        LocalDate begin = end.minusDays(days - 1);
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            Map map = new HashMap();
+            map.put("begin", LocalDateTime.of(date, LocalTime.MIN));
+            map.put("end", LocalDateTime.of(date, LocalTime.MAX));
+            blackhole.consume(orderMapper.countByMap(map));
+            Map userMap = new HashMap(map);
+            blackhole.consume(userMapper.countByMap(userMap));
+            map.put("status", Orders.COMPLETED);
+            blackhole.consume(orderMapper.sumByMap(map));
+            blackhole.consume(orderMapper.countByMap(map));
+            userMap.remove("begin");
+            blackhole.consume(userMapper.countByMap(userMap));
+        }
+    }
+
+    @Benchmark
+    public void grouped(Blackhole blackhole) {
+        LocalDateTime beginTime = end.minusDays(days - 1).atStartOfDay();
+        LocalDateTime endTime = end.plusDays(1).atStartOfDay();
+        List<OrderDailyStatDTO> orderStats = orderMapper.getDailyStats(beginTime, endTime, Orders.COMPLETED, Orders.CANCELLED);
+        List<UserDailyStatDTO> userStats = userMapper.getDailyNewUsers(beginTime, endTime);
+        Map map = new HashMap();
+        map.put("end", beginTime);
+        blackhole.consume(orderStats);
+        blackhole.consume(userStats);
+        blackhole.consume(userMapper.countByMap(map));
+    }
+}
@@ -0,0 +1,69 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * 基于H2内存数据库（MySQL兼容模式）加载项目中的mapper，用于基准测试，不依赖spring容器和MySQL
+ * 配置与application.yml中的mybatis配置一致：实体类别名、驼峰命名映射；与spring中每次调用使用新会话一样，不使用会话级缓存
+ */
+public final class H2MapperSupport {
+
+    private H2MapperSupport() {
+    }
+
+    /**
+     * 创建内存数据库
+     * @param name 数据库名，同一JVM内不同的名称互不影响
+     * @return
+     */
+    public static DataSource dataSource(String name) {
+        return new UnpooledDataSource("org.h2.Driver",
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+                "sa", "");
+    }
+
+    /**
+     * 执行建表等语句
+     * @param dataSource
+     * @param sqls
+     */
+    public static void execute(DataSource dataSource, String... sqls) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * 加载mapper
+     * @param dataSource
+     * @param mapperXmls classpath下的mapper文件，如 mapper/OrderMapper.xml
+     * @return
+     */
+    public static SqlSessionFactory sqlSessionFactory(DataSource dataSource, String... mapperXmls) throws Exception {
+        Configuration configuration = new Configuration(new Environment("h2", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        //关闭会话级缓存，每次调用都真正执行语句
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.getTypeAliasRegistry().registerAliases("com.sky.entity");
+        for (String mapperXml : mapperXmls) {
+            try (InputStream inputStream = H2MapperSupport.class.getClassLoader().getResourceAsStream(mapperXml)) {
+                new XMLMapperBuilder(inputStream, configuration, mapperXml, configuration.getSqlFragments()).parse();
+            }
+        }
+        return new SqlSessionFactoryBuilder().build(configuration);
+    }
+}
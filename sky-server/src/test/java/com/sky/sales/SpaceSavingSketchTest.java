@@ -0,0 +1,135 @@
+package com.sky.sales;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Space-Saving统计与精确计数的比对
+ */
+class SpaceSavingSketchTest {
+
+    private static final int CAPACITY = 256;
+    private static final int ITEMS = 5000;
+    private static final int EVENTS = 500_000;
+
+    /**
+     * 偏斜分布（Zipf，s=1.1）下：任何元素的计数都不被低估，高估不超过 总数/容量，前10名与精确结果一致
+     */
+    @Test
+    void skewedStreamMatchesExactTop10() {
+        Random random = new Random(42);
+        double[] cdf = zipfCdf(ITEMS, 1.1);
+        SpaceSavingSketch sketch = new SpaceSavingSketch(CAPACITY);
+        Map<String, Long> exact = new HashMap<>();
+        long total = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            String item = "dish-" + sample(cdf, random);
+            long count = 1 + random.nextInt(3);
+            sketch.add(item, count);
+            exact.merge(item, count, Long::sum);
+            total += count;
+        }
+
+        long maxError = total / CAPACITY;
+        sketch.toMap().forEach((item, estimate) -> {
+            long actual = exact.getOrDefault(item, 0L);
+            assertTrue(estimate >= actual, "计数不应被低估：" + item);
+            assertTrue(estimate - actual <= maxError, "高估超过误差上界：" + item);
+        });
+
+        List<String> exactTop10 = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        LinkedHashMap<String, Long> sketchTop10 = sketch.top(10);
+        assertEquals(exactTop10, new ArrayList<>(sketchTop10.keySet()));
+        for (String item : exactTop10) {
+            double relativeError = (sketchTop10.get(item) - exact.get(item)) / (double) exact.get(item);
+            assertTrue(relativeError < 0.01, "前10名计数误差超过1%：" + item);
+        }
+    }
+
+    /**
+     * 按天分桶后合并，与整体精确计数的前10名一致
+     */
+    @Test
+    void mergedDailyBucketsMatchExactTop10() {
+        Random random = new Random(7);
+        double[] cdf = zipfCdf(ITEMS, 1.2);
+        List<SpaceSavingSketch> days = new ArrayList<>();
+        Map<String, Long> exact = new HashMap<>();
+        for (int d = 0; d < 30; d++) {
+            SpaceSavingSketch day = new SpaceSavingSketch(CAPACITY);
+            for (int i = 0; i < EVENTS / 30; i++) {
+                String item = "dish-" + sample(cdf, random);
+                day.add(item, 1);
+                exact.merge(item, 1L, Long::sum);
+            }
+            days.add(day);
+        }
+
+        SpaceSavingSketch merged = new SpaceSavingSketch(CAPACITY);
+        days.forEach(merged::merge);
+
+        List<String> exactTop10 = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        assertEquals(exactTop10, new ArrayList<>(merged.top(10).keySet()));
+    }
+
+    /**
+     * 元素数不超过容量时结果精确，包括合并、扣减和持久化恢复
+     */
+    @Test
+    void exactWithinCapacity() {
+        SpaceSavingSketch first = new SpaceSavingSketch(4);
+        first.add("a", 5);
+        first.add("b", 3);
+        SpaceSavingSketch second = new SpaceSavingSketch(4);
+        second.add("b", 4);
+        second.add("c", 1);
+        first.merge(second);
+        first.subtract("a", 2);
+        first.subtract("d", 1);
+
+        Map<String, Long> expected = new HashMap<>();
+        expected.put("a", 3L);
+        expected.put("b", 7L);
+        expected.put("c", 1L);
+        assertEquals(expected, first.toMap());
+        assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<>(first.top(3).keySet()));
+        assertEquals(expected, SpaceSavingSketch.fromMap(4, first.toMap()).toMap());
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return index >= 0 ? index : Math.min(-index - 1, cdf.length - 1);
+    }
+}
@@ -0,0 +1,144 @@
+package com.sky.service.impl;
+
+import com.sky.entity.DailyBusinessStats;
+import com.sky.event.OrderStatusChangedEvent;
+import com.sky.service.BusinessStatsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运营数据报表导出的基准测试：30、365、1000天的导出耗时及堆内存峰值
+ * 营业数据由内存中的桩对象提供，只测试Excel生成和写出；导出内容写入丢弃的输出流
+ * 堆内存限制为64MB，能完成说明内存占用不随天数增长；每轮结束后输出各堆内存区峰值之和（包含未回收的垃圾，为上限值）
+ * 运行：mvn -P jmh -pl sky-server -am test -Djmh.args="BusinessDataExportBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+public class BusinessDataExportBenchmark {
+
+    @Param({"30", "365", "1000"})
+    private int days;
+
+    private ReportServiceImpl reportService;
+    private LocalDate begin;
+    private LocalDate end;
+    private long peakHeap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        end = LocalDate.now().minusDays(1);
+        begin = end.minusDays(days - 1);
+        reportService = new ReportServiceImpl();
+        ReflectionTestUtils.setField(reportService, "businessStatsService", new StubBusinessStatsService());
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void recordPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        peakHeap = Math.max(peakHeap, peak);
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        //JMH转发子进程输出时不保证中文编码，这里只输出ASCII
+        System.out.printf("%ndays=%d, peak heap <= %.1f MB%n", days, peakHeap / 1024.0 / 1024.0);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        reportService.writeBusinessData(begin, end, out, null);
+        return out.count;
+    }
+
+    /**
+     * 按日期生成固定的随机营业数据
+     */
+    private static class StubBusinessStatsService implements BusinessStatsService {
+
+        public List<DailyBusinessStats> getDailyStats(LocalDate begin, LocalDate end) {
+            Random random = new Random(begin.toEpochDay());
+            List<DailyBusinessStats> statsList = new ArrayList<>();
+            for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+                DailyBusinessStats stats = DailyBusinessStats.empty(date);
+                int total = 200 + random.nextInt(200);
+                int valid = total - random.nextInt(40);
+                stats.setTotalOrderCount(total);
+                stats.setValidOrderCount(valid);
+                stats.setCancelledOrderCount(total - valid);
+                stats.setTurnover(BigDecimal.valueOf(valid * (30 + random.nextInt(5000) / 100.0)));
+                stats.setNewUsers(random.nextInt(50));
+                statsList.add(stats);
+            }
+            return statsList;
+        }
+
+        public void reconcile(LocalDate begin, LocalDate end) {
+        }
+
+        public void backfill(LocalDate begin, LocalDate end) {
+        }
+
+        public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        }
+
+        public void recordNewUser(LocalDateTime createTime) {
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        public void write(int b) {
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
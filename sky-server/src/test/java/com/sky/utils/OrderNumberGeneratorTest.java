@@ -0,0 +1,92 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    /**
+     * 多线程同时生成，所有订单号不重复，且每个线程内严格递增
+     */
+    @Test
+    void concurrentIdsAreUnique() throws Exception {
+        OrderNumberGenerator generator = new OrderNumberGenerator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<Long> all = new HashSet<>(THREADS * IDS_PER_THREAD * 2);
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 0; i < ids.length; i++) {
+                    if (i > 0) {
+                        assertTrue(ids[i] > ids[i - 1], "同一线程内订单号应递增");
+                    }
+                    all.add(ids[i]);
+                }
+            }
+            assertEquals(THREADS * IDS_PER_THREAD, all.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 不同机器id生成的订单号互不重复
+     */
+    @Test
+    void differentWorkersDoNotCollide() {
+        OrderNumberGenerator first = new OrderNumberGenerator(1);
+        OrderNumberGenerator second = new OrderNumberGenerator(2);
+        Set<Long> all = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            all.add(first.nextId());
+            all.add(second.nextId());
+        }
+        assertEquals(100_000, all.size());
+    }
+
+    /**
+     * 切换机器id后生成的订单号使用新的机器id
+     */
+    @Test
+    void switchWorkerId() {
+        OrderNumberGenerator generator = new OrderNumberGenerator(3);
+        generator.setWorkerId(5);
+        long id = generator.nextId();
+        assertEquals(5, (id >>> 12) & OrderNumberGenerator.MAX_WORKER_ID);
+    }
+
+    @Test
+    void rejectInvalidWorkerId() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(OrderNumberGenerator.MAX_WORKER_ID + 1));
+    }
+}